@@ -1,7 +1,18 @@
 package assitant;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.commons.lang3.StringUtils;
+
+import cache.BoundedCache;
 import ch.ivyteam.ivy.environment.Ivy;
 import dev.langchain4j.internal.Json;
 import dev.langchain4j.service.AiServices;
@@ -9,25 +20,182 @@ import dev.langchain4j.service.SystemMessage;
 import dev.langchain4j.service.UserMessage;
 import dev.langchain4j.service.V;
 import entity.Option;
+import metrics.LlmMetrics;
+import service.AiExecutor;
 import service.OpenAiService;
 
 public class DecisionMaker {
-  
+
+  /** LangChain4j proxy, built once since it is stateless and safe to share across threads. */
+  private static volatile IDecisionMaker assistant;
+
+  /**
+   * One local classifier per distinct option set, keyed by {@link #fingerprint(List)}. Bounded, since callers may
+   * build option sets dynamically; an evicted classifier is rebuilt from its options and loses what it learned.
+   */
+  private static final BoundedCache<String, OptionClassifier> CLASSIFIERS = new BoundedCache<>(100, Duration.ofHours(12));
+
   /**
-   * Uses an AI assistant to choose the best {@link Option} 
-   * that matches the given user message.
+   * Option id chosen by the LLM, keyed by option set fingerprint and normalized message.
+   * Local answers are not cached since they are cheap to recompute.
+   */
+  private static final BoundedCache<String, String> DECISION_CACHE = new BoundedCache<>(1000, Duration.ofHours(12));
+
+  private static final AtomicLong LOCAL_DECISIONS = new AtomicLong();
+  private static final AtomicLong LLM_DECISIONS = new AtomicLong();
+
+  /**
+   * Chooses the best {@link Option} that matches the given user message.
+   * <p>
+   * Repeated messages for the same option set are served from a decision cache. Clear-cut
+   * messages are answered by a local {@link OptionClassifier}; ambiguous ones and anything
+   * that could pick a destructive option are escalated to the AI assistant. The classifier
+   * only learns through {@link #learn(List, String, String)}.
+   * </p>
    *
    * @param options a list of candidate {@link Option} objects in JSON-compatible form
    * @param message the user's message describing their intent or requirement
-   * @return the most suitable {@link Option} selected by the AI
+   * @return the most suitable {@link Option}
    */
   public Option makeDecision(List<Option> options, String message) {
-    IDecisionMaker assistant = AiServices
-        .builder(IDecisionMaker.class)
-        .chatModel(OpenAiService.getJsonChatModel())
-        .build();
+    String fingerprint = fingerprint(options);
+    String cacheKey = fingerprint + "|" + normalize(message);
+
+    Option cached = findById(options, DECISION_CACHE.get(cacheKey));
+    if (cached != null) {
+      return cached;
+    }
+
+    OptionClassifier classifier = getClassifier(fingerprint, options);
+
+    Option local = findById(options, classifier.classify(message));
+    if (local != null) {
+      LOCAL_DECISIONS.incrementAndGet();
+      return local;
+    }
+
+    Option decision = LlmMetrics.measure("DecisionMaker.makeDecision",
+        () -> getAssistant().makeDecision(options, message));
+    LLM_DECISIONS.incrementAndGet();
+    if (decision == null) {
+      return null;
+    }
+
+    // Prefer the caller's instance over the one deserialized from the model's JSON
+    Option chosen = findById(options, decision.getId());
+    if (chosen == null) {
+      return decision;
+    }
+    DECISION_CACHE.put(cacheKey, chosen.getId());
+    return chosen;
+  }
+
+  /**
+   * Asynchronous variant of {@link #makeDecision(List, String)}, executed by the {@link AiExecutor}.
+   * Library API for callers that decide several messages at once; it is safe off the request thread since
+   * the proxy is built before submitting and deciding needs no Ivy context.
+   *
+   * @param options a list of candidate {@link Option} objects
+   * @param message the user's message describing their intent or requirement
+   * @return a future completed with the most suitable {@link Option}
+   */
+  public CompletableFuture<Option> makeDecisionAsync(List<Option> options, String message) {
+    getAssistant(); // build the proxy while the Ivy context is available
+    return AiExecutor.supplyAsync(() -> makeDecision(options, message));
+  }
+
+  /**
+   * Trains the local classifier with a known decision, e.g. from a reviewed decision log.
+   *
+   * @param options the option set the decision was taken from
+   * @param optionId id of the chosen option
+   * @param message the user's message
+   */
+  public void learn(List<Option> options, String optionId, String message) {
+    getClassifier(fingerprint(options), options).learn(optionId, message);
+  }
+
+  /**
+   * @return number of decisions answered by the local classifier
+   */
+  public static long getLocalDecisionCount() {
+    return LOCAL_DECISIONS.get();
+  }
+
+  /**
+   * @return number of decisions that had to be escalated to the LLM
+   */
+  public static long getLlmDecisionCount() {
+    return LLM_DECISIONS.get();
+  }
+
+  /**
+   * Cache of decisions, e.g. to expose its hit, miss and eviction counts.
+   */
+  public static BoundedCache<String, String> getDecisionCache() {
+    return DECISION_CACHE;
+  }
+
+  private static OptionClassifier getClassifier(String fingerprint, List<Option> options) {
+    // get and put under one lock, so that learned messages never go to a classifier that is replaced right away
+    synchronized (CLASSIFIERS) {
+      OptionClassifier classifier = CLASSIFIERS.get(fingerprint);
+      if (classifier == null) {
+        classifier = new OptionClassifier(options);
+        CLASSIFIERS.put(fingerprint, classifier);
+      }
+      return classifier;
+    }
+  }
+
+  private static String normalize(String message) {
+    return StringUtils.normalizeSpace(StringUtils.defaultString(message)).toLowerCase(Locale.ROOT);
+  }
+
+  private static Option findById(List<Option> options, String id) {
+    if (id == null) {
+      return null;
+    }
+    for (Option option : options) {
+      if (id.equals(option.getId())) {
+        return option;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Stable hash over the ids, conditions and destructive flags of an option set. The order is part of the hash,
+   * since it decides ties.
+   */
+  static String fingerprint(List<Option> options) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      for (Option option : options) {
+        digest.update(String.valueOf(option.getId()).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0x1f);
+        digest.update(String.valueOf(option.getCondition()).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) (option.isDestructive() ? 1 : 0));
+        digest.update((byte) 0x1e);
+      }
+      return HexFormat.of().formatHex(digest.digest());
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
 
-    return assistant.makeDecision(options, message);
+  private static IDecisionMaker getAssistant() {
+    if (assistant == null) {
+      synchronized (DecisionMaker.class) {
+        if (assistant == null) {
+          assistant = AiServices
+              .builder(IDecisionMaker.class)
+              .chatModel(OpenAiService.getJsonChatModel())
+              .build();
+        }
+      }
+    }
+    return assistant;
   }
   
   /**
@@ -0,0 +1,193 @@
+package assitant;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import entity.Option;
+
+/**
+ * In-process TF-IDF classifier that matches a user message against the conditions of a fixed set of {@link Option}s.
+ * <p>
+ * Every option is represented by the terms of its condition plus the terms of the messages it learned from
+ * (see {@link #learn(String, String)}). A message is answered locally only if the best option is similar enough,
+ * clearly ahead of the runner-up and knows most of the message's terms, so that one shared keyword such as
+ * "created" in "find the transaction I created" does not decide. {@link Option#isDestructive() Destructive}
+ * options are never chosen locally; these and everything else are left to the LLM.
+ * </p>
+ * Instances are thread-safe.
+ */
+public class OptionClassifier {
+
+  /** Minimum cosine similarity of the best option. */
+  private static final double MIN_SCORE = 0.35;
+
+  /** Minimum distance between the best and the second best option. */
+  private static final double MIN_MARGIN = 0.2;
+
+  /** Minimum share of the message's terms that the best option must know. */
+  private static final double MIN_COVERAGE = 0.75;
+
+  /** Upper bound of learned messages per option, keeps the term counts from growing forever. */
+  private static final int MAX_EXAMPLES_PER_OPTION = 500;
+
+  private static final Set<String> STOP_WORDS = Set.of(
+      "a", "an", "the", "is", "are", "be", "to", "of", "or", "and", "by", "for", "in", "on", "at", "it", "its",
+      "this", "that", "these", "those", "some", "any", "all", "about", "related", "message", "i", "me", "my",
+      "please", "want", "would", "like", "can", "you", "with");
+
+  private final Map<String, Map<String, Integer>> termCounts = new LinkedHashMap<>();
+  private final Map<String, Integer> exampleCounts = new HashMap<>();
+  private final Set<String> destructiveIds = new HashSet<>();
+
+  /**
+   * @param options candidate options, their conditions form the initial vocabulary
+   */
+  public OptionClassifier(List<Option> options) {
+    for (Option option : options) {
+      Map<String, Integer> counts = new HashMap<>();
+      addTerms(counts, option.getCondition());
+      termCounts.put(option.getId(), counts);
+      exampleCounts.put(option.getId(), 0);
+      if (option.isDestructive()) {
+        destructiveIds.add(option.getId());
+      }
+    }
+  }
+
+  /**
+   * Classifies a message.
+   *
+   * @param message the user's message
+   * @return id of the matching option, or null if the classifier is not confident enough
+   */
+  public synchronized String classify(String message) {
+    Map<String, Integer> terms = tokenize(message);
+    Map<String, Double> query = weigh(terms, true);
+    if (query.isEmpty() || termCounts.size() < 2) {
+      return null;
+    }
+    double queryNorm = norm(query);
+
+    String bestId = null;
+    double best = 0;
+    double second = 0;
+    for (Map.Entry<String, Map<String, Integer>> entry : termCounts.entrySet()) {
+      Map<String, Double> document = weigh(entry.getValue(), false);
+      double score = cosine(query, queryNorm, document);
+      if (score > best) {
+        second = best;
+        best = score;
+        bestId = entry.getKey();
+      } else if (score > second) {
+        second = score;
+      }
+    }
+    if (best < MIN_SCORE || best - second < MIN_MARGIN || destructiveIds.contains(bestId)) {
+      return null;
+    }
+    return coverage(terms, termCounts.get(bestId)) >= MIN_COVERAGE ? bestId : null;
+  }
+
+  /**
+   * Adds a message that is known to belong to an option, e.g. one read from a reviewed decision log.
+   * Decisions of the LLM are not learned automatically, so that a wrong answer cannot train the classifier.
+   *
+   * @param optionId id of the chosen option, ignored if it is not one of the classifier's options
+   * @param message the user's message
+   */
+  public synchronized void learn(String optionId, String message) {
+    Map<String, Integer> counts = termCounts.get(optionId);
+    if (counts == null || exampleCounts.get(optionId) >= MAX_EXAMPLES_PER_OPTION) {
+      return;
+    }
+    addTerms(counts, message);
+    exampleCounts.merge(optionId, 1, Integer::sum);
+  }
+
+  /** TF-IDF weights with sublinear term frequency; terms no option knows are dropped from queries. */
+  private Map<String, Double> weigh(Map<String, Integer> terms, boolean knownOnly) {
+    Map<String, Double> weights = new HashMap<>();
+    for (Map.Entry<String, Integer> term : terms.entrySet()) {
+      int documentFrequency = documentFrequency(term.getKey());
+      if (knownOnly && documentFrequency == 0) {
+        continue;
+      }
+      double idf = Math.log((1.0 + termCounts.size()) / (1.0 + documentFrequency)) + 1;
+      weights.put(term.getKey(), (1 + Math.log(term.getValue())) * idf);
+    }
+    return weights;
+  }
+
+  /** Share of the distinct message terms that occur in the option's vocabulary. */
+  private static double coverage(Map<String, Integer> terms, Map<String, Integer> vocabulary) {
+    int known = 0;
+    for (String term : terms.keySet()) {
+      if (vocabulary.containsKey(term)) {
+        known++;
+      }
+    }
+    return (double) known / terms.size();
+  }
+
+  private int documentFrequency(String term) {
+    int frequency = 0;
+    for (Map<String, Integer> counts : termCounts.values()) {
+      if (counts.containsKey(term)) {
+        frequency++;
+      }
+    }
+    return frequency;
+  }
+
+  private static double cosine(Map<String, Double> query, double queryNorm, Map<String, Double> document) {
+    double dot = 0;
+    for (Map.Entry<String, Double> term : query.entrySet()) {
+      Double weight = document.get(term.getKey());
+      if (weight != null) {
+        dot += term.getValue() * weight;
+      }
+    }
+    double documentNorm = norm(document);
+    return dot == 0 ? 0 : dot / (queryNorm * documentNorm);
+  }
+
+  private static double norm(Map<String, Double> vector) {
+    double sum = 0;
+    for (double value : vector.values()) {
+      sum += value * value;
+    }
+    return Math.sqrt(sum);
+  }
+
+  private static void addTerms(Map<String, Integer> counts, String text) {
+    tokenize(text).forEach((term, count) -> counts.merge(term, count, Integer::sum));
+  }
+
+  private static Map<String, Integer> tokenize(String text) {
+    Map<String, Integer> terms = new HashMap<>();
+    if (text == null) {
+      return terms;
+    }
+    for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}]+")) {
+      if (word.length() > 1 && !STOP_WORDS.contains(word)) {
+        terms.merge(stem(word), 1, Integer::sum);
+      }
+    }
+    return terms;
+  }
+
+  /** Very small suffix stripper, enough to map "deleted", "deleting" and "delete" to one term. */
+  private static String stem(String word) {
+    for (String suffix : List.of("ing", "ed", "es", "s", "e")) {
+      if (word.endsWith(suffix) && word.length() - suffix.length() >= 3) {
+        return word.substring(0, word.length() - suffix.length());
+      }
+    }
+    return word;
+  }
+}
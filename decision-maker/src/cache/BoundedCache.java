@@ -0,0 +1,145 @@
+package cache;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Small thread-safe LRU cache with a maximum size and a time-to-live per entry.
+ * <p>
+ * Intended for memoizing expensive results such as LLM responses. Values are
+ * loaded by the caller outside of any lock, so a slow model call never blocks
+ * other readers. Hit, miss and eviction counts are kept for monitoring.
+ * </p>
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class BoundedCache<K, V> {
+
+  private final int maxSize;
+  private final long ttlNanos;
+  private final LinkedHashMap<K, Entry<V>> entries;
+
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  /**
+   * @param maxSize maximum number of entries, the least recently used entry is evicted first
+   * @param ttl how long an entry stays valid after it was put
+   */
+  public BoundedCache(int maxSize, Duration ttl) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("maxSize must be positive");
+    }
+    this.maxSize = maxSize;
+    this.ttlNanos = ttl.toNanos();
+    this.entries = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  /**
+   * Returns the cached value or null if there is none or it has expired.
+   */
+  public synchronized V get(K key) {
+    Entry<V> entry = entries.get(key);
+    if (entry == null) {
+      misses++;
+      return null;
+    }
+    if (entry.isExpired(System.nanoTime())) {
+      entries.remove(key);
+      evictions++;
+      misses++;
+      return null;
+    }
+    hits++;
+    return entry.value;
+  }
+
+  /**
+   * Stores a value, evicting expired and then least recently used entries if the cache is full.
+   */
+  public synchronized void put(K key, V value) {
+    long now = System.nanoTime();
+    entries.put(key, new Entry<>(value, now + ttlNanos));
+    if (entries.size() > maxSize) {
+      evictExpired(now);
+    }
+    Iterator<Entry<V>> it = entries.values().iterator();
+    while (entries.size() > maxSize && it.hasNext()) {
+      it.next();
+      it.remove();
+      evictions++;
+    }
+  }
+
+  /**
+   * Removes a single entry.
+   */
+  public synchronized void invalidate(K key) {
+    entries.remove(key);
+  }
+
+  /**
+   * Removes all entries. Statistics are kept.
+   */
+  public synchronized void invalidateAll() {
+    entries.clear();
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public synchronized long getHitCount() {
+    return hits;
+  }
+
+  public synchronized long getMissCount() {
+    return misses;
+  }
+
+  public synchronized long getEvictionCount() {
+    return evictions;
+  }
+
+  /**
+   * @return share of lookups served from the cache, 0 if there were no lookups yet
+   */
+  public synchronized double getHitRate() {
+    long lookups = hits + misses;
+    return lookups == 0 ? 0 : (double) hits / lookups;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "BoundedCache [size=" + entries.size() + ", maxSize=" + maxSize + ", hits=" + hits
+        + ", misses=" + misses + ", evictions=" + evictions + "]";
+  }
+
+  private void evictExpired(long now) {
+    Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator();
+    while (it.hasNext()) {
+      if (it.next().getValue().isExpired(now)) {
+        it.remove();
+        evictions++;
+      }
+    }
+  }
+
+  private static final class Entry<V> {
+    private final V value;
+    private final long expiresAt;
+
+    private Entry(V value, long expiresAt) {
+      this.value = value;
+      this.expiresAt = expiresAt;
+    }
+
+    private boolean isExpired(long now) {
+      return now - expiresAt >= 0;
+    }
+  }
+}
@@ -10,6 +10,9 @@ public class Option {
   
   @Description("Condition to choose the option")
   private String condition;
+
+  @Description("Whether choosing the option changes or deletes existing data")
+  private boolean destructive;
   
   public String getId() {
     return id;
@@ -26,6 +29,14 @@ public class Option {
   public void setCondition(String condition) {
     this.condition = condition;
   }
+
+  public boolean isDestructive() {
+    return destructive;
+  }
+
+  public void setDestructive(boolean destructive) {
+    this.destructive = destructive;
+  }
   
   @Override
   public String toString() {
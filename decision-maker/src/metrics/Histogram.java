@@ -0,0 +1,81 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of non-negative values, e.g. latencies in milliseconds.
+ * <p>
+ * Values are counted in buckets that grow by 10%, so percentiles are exact to within 10% however many values
+ * are recorded, in constant memory. Recording is a few atomic increments and safe from any thread.
+ * </p>
+ */
+public class Histogram {
+
+  private static final double GROWTH = 1.1;
+  private static final double LOG_GROWTH = Math.log(GROWTH);
+  /** 1.1^255 is about 3.6e10, i.e. more than a year in milliseconds. */
+  private static final int BUCKETS = 256;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sum = new LongAdder();
+  private final AtomicLong max = new AtomicLong();
+
+  /**
+   * @param value the value, negative values count as 0
+   */
+  public void record(long value) {
+    long v = Math.max(0, value);
+    counts.incrementAndGet(bucket(v));
+    count.increment();
+    sum.add(v);
+    max.accumulateAndGet(v, Math::max);
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  public long getSum() {
+    return sum.sum();
+  }
+
+  public long getMax() {
+    return max.get();
+  }
+
+  /**
+   * @param percentile between 0 and 100, e.g. 95
+   * @return upper bound of the bucket holding the percentile, at most the largest recorded value; 0 if empty
+   */
+  public long getPercentile(double percentile) {
+    long total = getCount();
+    if (total == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += counts.get(i);
+      if (seen >= rank) {
+        return Math.min(upperBound(i), getMax());
+      }
+    }
+    return getMax();
+  }
+
+  /** Bucket 0 holds 0, bucket i &gt; 0 holds the values up to 1.1^(i-1). */
+  private static int bucket(long value) {
+    if (value == 0) {
+      return 0;
+    }
+    int index = 1 + (int) Math.ceil(Math.log(value) / LOG_GROWTH - 1e-9);
+    return Math.min(index, BUCKETS - 1);
+  }
+
+  private static long upperBound(int bucket) {
+    return bucket == 0 ? 0 : (long) Math.floor(Math.pow(GROWTH, bucket - 1) + 1e-9);
+  }
+}
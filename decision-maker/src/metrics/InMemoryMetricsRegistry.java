@@ -0,0 +1,54 @@
+package metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link MetricsRegistry} keeping {@link Histogram}s and counters in memory for the lifetime of the JVM.
+ */
+public class InMemoryMetricsRegistry implements MetricsRegistry {
+
+  private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+  private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+  @Override
+  public void record(String name, long value) {
+    histograms.computeIfAbsent(name, n -> new Histogram()).record(value);
+  }
+
+  @Override
+  public void increment(String name, long amount) {
+    counters.computeIfAbsent(name, n -> new LongAdder()).add(amount);
+  }
+
+  /**
+   * @return the histogram with the given name, null if nothing was recorded under it
+   */
+  public Histogram getHistogram(String name) {
+    return histograms.get(name);
+  }
+
+  /**
+   * @return the value of the counter with the given name, 0 if it was never incremented
+   */
+  public long getCounter(String name) {
+    LongAdder counter = counters.get(name);
+    return counter == null ? 0 : counter.sum();
+  }
+
+  @Override
+  public String report() {
+    Map<String, String> lines = new TreeMap<>();
+    histograms.forEach((name, histogram) -> lines.put(name, String.format(
+        "count=%d p50=%d p95=%d p99=%d max=%d",
+        histogram.getCount(), histogram.getPercentile(50), histogram.getPercentile(95),
+        histogram.getPercentile(99), histogram.getMax())));
+    counters.forEach((name, counter) -> lines.put(name, String.valueOf(counter.sum())));
+
+    StringBuilder report = new StringBuilder();
+    lines.forEach((name, line) -> report.append(name).append(' ').append(line).append('\n'));
+    return report.toString();
+  }
+}
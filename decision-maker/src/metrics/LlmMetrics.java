@@ -0,0 +1,272 @@
+package metrics;
+
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+
+import ch.ivyteam.ivy.environment.Ivy;
+import ch.ivyteam.log.Logger;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.chat.listener.ChatModelErrorContext;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.chat.listener.ChatModelRequestContext;
+import dev.langchain4j.model.chat.listener.ChatModelResponseContext;
+import dev.langchain4j.model.output.TokenUsage;
+import dev.langchain4j.service.output.OutputParsingException;
+
+/**
+ * Latency, token and error metrics of the LLM calls.
+ * <p>
+ * An operation (e.g. {@code TransactionAgent.runTool}) is measured as a {@link Run} by
+ * {@link #measure(String, Supplier)}. The {@link #listener()} is registered on every chat model and attributes each
+ * model round trip to the run active on the calling thread, so one agent run with several tool rounds shows both
+ * the latency of the whole run and of each round trip. Model calls outside of a run are recorded as {@code chat}.
+ * </p>
+ * Recorded per operation:
+ * <ul>
+ *   <li>{@code <operation>.run.millis}, {@code .run.toolCalls}: histograms per run</li>
+ *   <li>{@code <operation>.model.millis}: histogram per model round trip</li>
+ *   <li>{@code <operation>.tokens.input}, {@code .tokens.output}: counters</li>
+ *   <li>{@code <operation>.run.errors}, {@code .model.errors}, {@code .parseFailures}, {@code .retries}: counters</li>
+ * </ul>
+ * <p>
+ * With {@link #startReporting()} the {@link MetricsRegistry#report() report} is written to {@code Ivy.log()}
+ * every {@code OpenAI.Metrics.ReportIntervalSeconds}.
+ * </p>
+ */
+public final class LlmMetrics {
+
+  private static final String VAR_REPORT_INTERVAL = "OpenAI.Metrics.ReportIntervalSeconds";
+  private static final int DEFAULT_REPORT_INTERVAL_SECONDS = 300;
+
+  /** Operation of the model calls made outside of a {@link Run}. */
+  private static final String UNATTRIBUTED = "chat";
+
+  private static final String ATTRIBUTE_RUN = LlmMetrics.class.getName() + ".run";
+  private static final String ATTRIBUTE_START = LlmMetrics.class.getName() + ".start";
+
+  private static final ThreadLocal<Run> CURRENT = new ThreadLocal<>();
+  private static final ChatModelListener LISTENER = new MetricsListener();
+
+  private static volatile MetricsRegistry registry = new InMemoryMetricsRegistry();
+  /** Whether {@link #startReporting()} ran; the reporter only exists if reporting is enabled. */
+  private static volatile boolean reportingStarted;
+  private static ScheduledExecutorService reporter;
+
+  private LlmMetrics() {}
+
+  public static MetricsRegistry getRegistry() {
+    return registry;
+  }
+
+  /**
+   * Replaces the registry, e.g. with one forwarding to a monitoring system. Metrics recorded so far stay
+   * in the previous registry.
+   */
+  public static void setRegistry(MetricsRegistry registry) {
+    LlmMetrics.registry = Objects.requireNonNull(registry, "registry");
+  }
+
+  /**
+   * @return the listener to register on chat models, shared by all of them
+   */
+  public static ChatModelListener listener() {
+    return LISTENER;
+  }
+
+  /**
+   * Runs an LLM operation as a {@link Run}: records its latency, its tool calls and whether it failed.
+   * An {@link OutputParsingException}, i.e. an answer that did not match the expected JSON, counts as parse failure.
+   *
+   * @param operation name of the operation, e.g. {@code TransactionAssistant.createTransaction}
+   * @param call the blocking call, e.g. an AI service method
+   * @return the result of the call
+   */
+  public static <T> T measure(String operation, Supplier<T> call) {
+    Run run = start(operation);
+    try {
+      T result = run.call(call);
+      run.finish(null);
+      return result;
+    } catch (RuntimeException | Error e) {
+      run.finish(e);
+      throw e;
+    }
+  }
+
+  /**
+   * Starts a run that is finished explicitly, e.g. one completed by a streaming callback.
+   * Model calls are only attributed to it while it is active, see {@link Run#call(Supplier)}.
+   */
+  public static Run start(String operation) {
+    return new Run(operation);
+  }
+
+  /**
+   * Counts an answer of the model that could not be parsed.
+   */
+  public static void parseFailure(String operation) {
+    registry.increment(operation + ".parseFailures", 1);
+  }
+
+  /**
+   * Counts a model call repeated because the previous answer was not usable.
+   */
+  public static void retry(String operation) {
+    registry.increment(operation + ".retries", 1);
+  }
+
+  /**
+   * Writes the report to {@code Ivy.log()} every {@code OpenAI.Metrics.ReportIntervalSeconds} (0 disables it).
+   * Has to be called on an Ivy request thread, the logger is resolved there; further calls have no effect.
+   */
+  public static void startReporting() {
+    if (!reportingStarted) {
+      synchronized (LlmMetrics.class) {
+        if (!reportingStarted) {
+          long interval = NumberUtils.toLong(Ivy.var().get(VAR_REPORT_INTERVAL), DEFAULT_REPORT_INTERVAL_SECONDS);
+          // No thread at all if reporting is disabled
+          if (interval > 0) {
+            Logger log = Ivy.log();
+            reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+              Thread thread = new Thread(runnable, "llm-metrics-report");
+              thread.setDaemon(true);
+              return thread;
+            });
+            reporter.scheduleAtFixedRate(() -> report(log), interval, interval, TimeUnit.SECONDS);
+          }
+          reportingStarted = true;
+        }
+      }
+    }
+  }
+
+  private static void report(Logger log) {
+    try {
+      String report = registry.report();
+      if (StringUtils.isNotEmpty(report)) {
+        log.info("LLM metrics:\n" + report);
+      }
+    } catch (RuntimeException e) {
+      // keep the schedule alive, a failing report must not stop later ones
+      log.warn("Could not report LLM metrics", e);
+    }
+  }
+
+  /**
+   * One execution of an LLM operation, possibly spanning several model round trips.
+   */
+  public static final class Run {
+    private final String operation;
+    private final long startNanos = System.nanoTime();
+    private final AtomicInteger toolCalls = new AtomicInteger();
+
+    private Run(String operation) {
+      this.operation = operation;
+    }
+
+    public String getOperation() {
+      return operation;
+    }
+
+    /**
+     * Executes the call with this run active on the current thread, so the model calls it makes are attributed to it.
+     */
+    public <T> T call(Supplier<T> call) {
+      Run previous = CURRENT.get();
+      CURRENT.set(this);
+      try {
+        return call.get();
+      } finally {
+        if (previous == null) {
+          CURRENT.remove();
+        } else {
+          CURRENT.set(previous);
+        }
+      }
+    }
+
+    /**
+     * Counts tool calls requested by the model, for runs whose model calls happen outside of {@link #call(Supplier)}.
+     */
+    public void toolCalled() {
+      toolCalls.incrementAndGet();
+    }
+
+    /**
+     * Records the run; to be called once.
+     *
+     * @param error the failure of the run, null if it succeeded
+     */
+    public void finish(Throwable error) {
+      MetricsRegistry target = registry;
+      target.record(operation + ".run.millis", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+      target.record(operation + ".run.toolCalls", toolCalls.get());
+      if (error != null) {
+        target.increment(operation + ".run.errors", 1);
+        if (error instanceof OutputParsingException) {
+          parseFailure(operation);
+        }
+      }
+    }
+  }
+
+  /**
+   * Measures model round trips. The request callback runs on the calling thread, the response may arrive on an
+   * HTTP thread (streaming), hence the run and the start time travel in the request attributes.
+   */
+  private static final class MetricsListener implements ChatModelListener {
+
+    @Override
+    public void onRequest(ChatModelRequestContext context) {
+      Run run = CURRENT.get();
+      if (run != null) {
+        context.attributes().put(ATTRIBUTE_RUN, run);
+      }
+      context.attributes().put(ATTRIBUTE_START, System.nanoTime());
+    }
+
+    @Override
+    public void onResponse(ChatModelResponseContext context) {
+      Run run = (Run) context.attributes().get(ATTRIBUTE_RUN);
+      String operation = run != null ? run.getOperation() : UNATTRIBUTED;
+      MetricsRegistry target = registry;
+      recordLatency(target, operation, context.attributes().get(ATTRIBUTE_START));
+
+      TokenUsage usage = context.chatResponse().tokenUsage();
+      if (usage != null) {
+        target.increment(operation + ".tokens.input", valueOf(usage.inputTokenCount()));
+        target.increment(operation + ".tokens.output", valueOf(usage.outputTokenCount()));
+      }
+      AiMessage message = context.chatResponse().aiMessage();
+      if (run != null && message != null && message.hasToolExecutionRequests()) {
+        run.toolCalls.addAndGet(message.toolExecutionRequests().size());
+      }
+    }
+
+    @Override
+    public void onError(ChatModelErrorContext context) {
+      Run run = (Run) context.attributes().get(ATTRIBUTE_RUN);
+      String operation = run != null ? run.getOperation() : UNATTRIBUTED;
+      MetricsRegistry target = registry;
+      recordLatency(target, operation, context.attributes().get(ATTRIBUTE_START));
+      target.increment(operation + ".model.errors", 1);
+    }
+
+    private static void recordLatency(MetricsRegistry target, String operation, Object start) {
+      if (start instanceof Long startNanos) {
+        target.record(operation + ".model.millis", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+      }
+    }
+
+    private static long valueOf(Integer count) {
+      return count == null ? 0 : count;
+    }
+  }
+}
@@ -0,0 +1,27 @@
+package metrics;
+
+/**
+ * Destination of the metrics recorded by {@link LlmMetrics}.
+ * <p>
+ * The default {@link InMemoryMetricsRegistry} keeps everything in the JVM; an implementation forwarding to
+ * a monitoring system can be installed with {@link LlmMetrics#setRegistry(MetricsRegistry)}.
+ * Implementations are called concurrently and must be thread-safe.
+ * </p>
+ */
+public interface MetricsRegistry {
+
+  /**
+   * Adds a value to the distribution with the given name, e.g. a latency in milliseconds.
+   */
+  void record(String name, long value);
+
+  /**
+   * Adds to the counter with the given name.
+   */
+  void increment(String name, long amount);
+
+  /**
+   * @return human-readable summary of all metrics, one per line; empty if nothing was recorded
+   */
+  String report();
+}
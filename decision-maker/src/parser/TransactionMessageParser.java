@@ -0,0 +1,380 @@
+package parser;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Rule-based parser for the common shapes of transaction messages,
+ * e.g. "Paid 200k for Grab ride yesterday" or "salary 15m today".
+ * <p>
+ * It extracts amount (with k/m suffixes), type, category, date and description
+ * without calling the LLM, and rates how sure it is about the result.
+ * Callers should only trust results whose confidence reaches {@link #DEFAULT_CONFIDENCE_THRESHOLD}
+ * and fall back to the model otherwise.
+ * </p>
+ * <p>
+ * Messages with a time reference the parser does not resolve ("last Friday", "tomorrow", "in March",
+ * "on the 3rd") are not parsed at all, rather than being dated today.
+ * Shared by the financial tracker projects, which map the result to their own transaction entity;
+ * categories are the names of their {@code Transaction.Category} constants.
+ * </p>
+ */
+public class TransactionMessageParser {
+
+  /** Minimum confidence for a parse result to be used instead of the LLM. */
+  public static final double DEFAULT_CONFIDENCE_THRESHOLD = 0.8;
+
+  /** Category of messages without category keywords. */
+  public static final String CATEGORY_OTHER = "OTHER";
+
+  private static final double WEIGHT_AMOUNT = 0.4;
+  private static final double WEIGHT_EXPLICIT_TYPE = 0.2;
+  private static final double WEIGHT_INFERRED_TYPE = 0.15;
+  private static final double WEIGHT_CATEGORY = 0.3;
+  private static final double WEIGHT_DEFAULT_CATEGORY = 0.1;
+  private static final double WEIGHT_EXPLICIT_DATE = 0.1;
+  private static final double WEIGHT_DEFAULT_DATE = 0.05;
+
+  private static final Pattern ISO_DATE = Pattern.compile("\\b(\\d{4}-\\d{2}-\\d{2})\\b");
+  private static final Pattern DOTTED_DATE = Pattern.compile("\\b(\\d{1,2})[./](\\d{1,2})[./](\\d{4})\\b");
+  private static final Pattern DAYS_AGO = Pattern.compile("\\b(\\d{1,3})\\s+days?\\s+ago\\b", Pattern.CASE_INSENSITIVE);
+  private static final Pattern DAY_BEFORE_YESTERDAY = Pattern.compile("\\b(the\\s+)?day\\s+before\\s+yesterday\\b", Pattern.CASE_INSENSITIVE);
+  private static final Pattern YESTERDAY = Pattern.compile(
+      "\\b(yesterday(\\s+(morning|afternoon|evening|night))?|last\\s+night)\\b", Pattern.CASE_INSENSITIVE);
+  private static final Pattern TODAY = Pattern.compile(
+      "\\b(today(\\s+(morning|afternoon|evening))?|tonight|this\\s+(morning|afternoon|evening))\\b", Pattern.CASE_INSENSITIVE);
+  /** Time of day without a date, e.g. "in the morning"; it does not change the date and is no description. */
+  private static final Pattern TIME_OF_DAY = Pattern.compile(
+      "\\b((in|during)\\s+the\\s+)?(morning|afternoon|evening)\\b|\\bat\\s+(noon|midnight)\\b", Pattern.CASE_INSENSITIVE);
+  /** Day of month without a month, e.g. "on the 3rd". */
+  private static final Pattern ORDINAL_DAY = Pattern.compile("\\b\\d{1,2}(st|nd|rd|th)\\b", Pattern.CASE_INSENSITIVE);
+
+  /** Words of a time reference that is left over once the recognized date phrase was cut from the message. */
+  private static final Set<String> TEMPORAL_WORDS = Set.of(
+      "yesterday", "today", "tonight", "tomorrow", "last", "next", "ago", "previous", "past", "coming",
+      "week", "weeks", "weekend", "month", "months", "year", "years", "fortnight",
+      "monday", "tuesday", "wednesday", "thursday", "friday", "saturday", "sunday",
+      "january", "february", "march", "april", "may", "june", "july", "august", "september", "october",
+      "november", "december", "jan", "feb", "mar", "apr", "jun", "jul", "aug", "sep", "sept", "oct", "nov", "dec");
+
+  /** Either a number with thousands separators (1,500,000) or a plain/decimal number (15 / 1.5), optionally with a suffix. */
+  private static final Pattern AMOUNT = Pattern.compile(
+      "(?<![\\w.,])(\\d{1,3}(?:[.,]\\d{3})+|\\d+(?:[.,]\\d+)?)\\s*(k|m|mil|million|thousand)?(?![\\w])",
+      Pattern.CASE_INSENSITIVE);
+
+  /** Currency of the amount, e.g. "100 usd" or "$100"; amounts are stored without currency. */
+  private static final Pattern CURRENCY = Pattern.compile(
+      "(?<!\\p{L})(usd|vnd|eur|euros?|dollars?|bucks|dong|gbp|chf)(?!\\p{L})|[$€£₫]", Pattern.CASE_INSENSITIVE);
+
+  private static final Pattern LEADING_FILLER = Pattern.compile(
+      "^(?:(?:i|just|have|has|paid|pay|spent|spend|bought|buy|purchased|received|receive|earned|earn|got|get|for|on|at|from|of|a|an|the)\\b\\s*)+",
+      Pattern.CASE_INSENSITIVE);
+  private static final Pattern TRAILING_FILLER = Pattern.compile(
+      "(?:\\s*\\b(?:for|on|at|from|of|in)\\b)+$", Pattern.CASE_INSENSITIVE);
+
+  private static final Set<String> EXPENSE_WORDS = Set.of(
+      "paid", "pay", "spent", "spend", "bought", "buy", "purchased", "purchase", "cost", "expense", "bill", "fee");
+  private static final Set<String> INCOME_WORDS = Set.of(
+      "received", "receive", "earned", "earn", "income", "salary", "bonus", "refund", "interest", "dividend", "dividends", "sold");
+
+  private static final Map<String, Set<String>> CATEGORY_WORDS = new LinkedHashMap<>();
+  static {
+    CATEGORY_WORDS.put("FOOD", Set.of("food", "lunch", "dinner", "breakfast", "meal", "restaurant", "pizza",
+        "burger", "rice", "pho", "noodles", "groceries", "grocery", "snack", "snacks"));
+    CATEGORY_WORDS.put("DRINK", Set.of("coffee", "cafe", "tea", "beer", "wine", "drink", "drinks", "juice", "smoothie"));
+    CATEGORY_WORDS.put("PARTY", Set.of("party", "birthday", "karaoke", "club", "celebration", "wedding"));
+    CATEGORY_WORDS.put("CLOTHES", Set.of("clothes", "shirt", "shoes", "dress", "jeans", "jacket", "pants", "hat", "sneakers"));
+    CATEGORY_WORDS.put("SALARY", Set.of("salary", "wage", "wages", "paycheck", "payroll", "bonus"));
+    CATEGORY_WORDS.put("INVESTMENT_INTEREST", Set.of("interest", "dividend", "dividends", "investment"));
+  }
+
+  /**
+   * Parses a message into a transaction.
+   *
+   * @param message the user-provided text describing the transaction
+   * @param today reference date for relative phrases like "yesterday"
+   * @return the parse result, not {@link ParseResult#isParsed() parsed} and with confidence 0 if the message cannot be parsed
+   */
+  public ParseResult parse(String message, LocalDate today) {
+    if (StringUtils.isBlank(message)) {
+      return ParseResult.NONE;
+    }
+    String text = StringUtils.normalizeSpace(message);
+    double confidence = 0;
+
+    // Date first, so that "17.04.2022" is not mistaken for an amount
+    DateMatch dateMatch = findDate(text, today);
+    if (dateMatch.invalid) {
+      return ParseResult.NONE;
+    }
+    LocalDate date = dateMatch.date != null ? dateMatch.date : today;
+    confidence += dateMatch.date != null ? WEIGHT_EXPLICIT_DATE : WEIGHT_DEFAULT_DATE;
+    text = TIME_OF_DAY.matcher(dateMatch.remainingText).replaceAll(" ");
+    // "dinner last Friday" must not become a dinner today with "last Friday" as description
+    if (ORDINAL_DAY.matcher(text).find() || containsAny(words(text), TEMPORAL_WORDS)) {
+      return ParseResult.NONE;
+    }
+
+    // Exactly one amount, otherwise it is ambiguous which one is meant
+    Matcher amountMatcher = AMOUNT.matcher(text);
+    if (!amountMatcher.find()) {
+      return ParseResult.NONE;
+    }
+    double amount = toAmount(amountMatcher.group(1), amountMatcher.group(2));
+    String remainingText = text.substring(0, amountMatcher.start()) + " " + text.substring(amountMatcher.end());
+    if (amountMatcher.find() || amount <= 0) {
+      return ParseResult.NONE;
+    }
+    remainingText = CURRENCY.matcher(remainingText).replaceAll(" ");
+    confidence += WEIGHT_AMOUNT;
+
+    // "got paid" is income, not an expense "paid"
+    Set<String> words = words(remainingText.replaceAll("(?i)\\bgot\\s+paid\\b", "received"));
+
+    String category = findCategory(words);
+    if (category == null) {
+      // keywords of several categories, e.g. "pizza and beer": leave it to the model
+      category = CATEGORY_OTHER;
+    } else {
+      confidence += !CATEGORY_OTHER.equals(category) ? WEIGHT_CATEGORY : WEIGHT_DEFAULT_CATEGORY;
+    }
+
+    boolean expense = containsAny(words, EXPENSE_WORDS);
+    boolean income = containsAny(words, INCOME_WORDS);
+    boolean isIncome;
+    if (expense && income) {
+      return ParseResult.NONE;
+    } else if (expense || income) {
+      isIncome = income;
+      confidence += WEIGHT_EXPLICIT_TYPE;
+    } else if (!CATEGORY_OTHER.equals(category)) {
+      isIncome = isIncomeCategory(category);
+      confidence += WEIGHT_INFERRED_TYPE;
+    } else {
+      isIncome = false;
+    }
+
+    return new ParseResult(amount, isIncome, category, toDescription(remainingText, category), date, confidence);
+  }
+
+  private DateMatch findDate(String text, LocalDate today) {
+    Matcher m = ISO_DATE.matcher(text);
+    if (m.find()) {
+      try {
+        return new DateMatch(LocalDate.parse(m.group(1)), cut(text, m));
+      } catch (DateTimeParseException e) {
+        return DateMatch.INVALID;
+      }
+    }
+    m = DOTTED_DATE.matcher(text);
+    if (m.find()) {
+      try {
+        String normalized = String.format("%02d.%02d.%s", Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2)), m.group(3));
+        return new DateMatch(LocalDate.parse(normalized, DateTimeFormatter.ofPattern("dd.MM.yyyy")), cut(text, m));
+      } catch (DateTimeParseException e) {
+        return DateMatch.INVALID;
+      }
+    }
+    m = DAYS_AGO.matcher(text);
+    if (m.find()) {
+      return new DateMatch(today.minusDays(Integer.parseInt(m.group(1))), cut(text, m));
+    }
+    m = DAY_BEFORE_YESTERDAY.matcher(text);
+    if (m.find()) {
+      return new DateMatch(today.minusDays(2), cut(text, m));
+    }
+    m = YESTERDAY.matcher(text);
+    if (m.find()) {
+      return new DateMatch(today.minusDays(1), cut(text, m));
+    }
+    m = TODAY.matcher(text);
+    if (m.find()) {
+      return new DateMatch(today, cut(text, m));
+    }
+    return new DateMatch(null, text);
+  }
+
+  private static String cut(String text, Matcher m) {
+    return text.substring(0, m.start()) + " " + text.substring(m.end());
+  }
+
+  private static double toAmount(String number, String suffix) {
+    String digits;
+    if (number.matches("\\d{1,3}([.,]\\d{3})+")) {
+      digits = number.replaceAll("[.,]", "");
+    } else {
+      digits = number.replace(',', '.');
+    }
+    double value = Double.parseDouble(digits);
+    if (suffix == null) {
+      return value;
+    }
+    switch (suffix.toLowerCase(Locale.ROOT)) {
+      case "k":
+      case "thousand":
+        return value * 1_000;
+      case "m":
+      case "mil":
+      case "million":
+        return value * 1_000_000;
+      default:
+        return value;
+    }
+  }
+
+  /** Picks the category with most keyword hits, OTHER if there is none and null on a tie. */
+  private static String findCategory(Set<String> words) {
+    String best = CATEGORY_OTHER;
+    int bestHits = 0;
+    boolean tie = false;
+    for (Map.Entry<String, Set<String>> entry : CATEGORY_WORDS.entrySet()) {
+      int hits = 0;
+      for (String word : words) {
+        if (entry.getValue().contains(word)) {
+          hits++;
+        }
+      }
+      if (hits > bestHits) {
+        best = entry.getKey();
+        bestHits = hits;
+        tie = false;
+      } else if (hits > 0 && hits == bestHits) {
+        tie = true;
+      }
+    }
+    return tie ? null : best;
+  }
+
+  private static boolean isIncomeCategory(String category) {
+    return "SALARY".equals(category) || "INVESTMENT_INTEREST".equals(category);
+  }
+
+  private static String toDescription(String remainingText, String category) {
+    String description = StringUtils.normalizeSpace(remainingText);
+    description = LEADING_FILLER.matcher(description).replaceFirst("");
+    description = TRAILING_FILLER.matcher(description).replaceFirst("");
+    description = StringUtils.strip(description, " ,.;:-");
+    if (StringUtils.isBlank(description)) {
+      // same as Transaction.Category#getDisplayName()
+      return category.charAt(0) + category.substring(1).toLowerCase(Locale.ROOT);
+    }
+    return StringUtils.capitalize(description);
+  }
+
+  private static Set<String> words(String text) {
+    Set<String> words = new HashSet<>();
+    for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}]+")) {
+      if (!word.isEmpty()) {
+        words.add(word);
+      }
+    }
+    return words;
+  }
+
+  private static boolean containsAny(Set<String> words, Set<String> candidates) {
+    for (String candidate : candidates) {
+      if (words.contains(candidate)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Outcome of {@link TransactionMessageParser#parse(String, LocalDate)}.
+   */
+  public static class ParseResult {
+
+    private static final ParseResult NONE = new ParseResult(0, false, null, null, null, 0);
+
+    private final double amount;
+    private final boolean income;
+    private final String category;
+    private final String description;
+    private final LocalDate date;
+    private final double confidence;
+
+    private ParseResult(double amount, boolean income, String category, String description, LocalDate date,
+        double confidence) {
+      this.amount = amount;
+      this.income = income;
+      this.category = category;
+      this.description = description;
+      this.date = date;
+      this.confidence = confidence;
+    }
+
+    /**
+     * @return true if a transaction could be parsed at all
+     */
+    public boolean isParsed() {
+      return category != null;
+    }
+
+    public double getAmount() {
+      return amount;
+    }
+
+    /**
+     * @return true for an income, false for an expense
+     */
+    public boolean isIncome() {
+      return income;
+    }
+
+    /**
+     * @return name of the category constant, e.g. {@code FOOD}, or {@link #CATEGORY_OTHER}; null if not parsed
+     */
+    public String getCategory() {
+      return category;
+    }
+
+    public String getDescription() {
+      return description;
+    }
+
+    public LocalDate getDate() {
+      return date;
+    }
+
+    /**
+     * @return confidence between 0 and 1 that the result matches the message
+     */
+    public double getConfidence() {
+      return confidence;
+    }
+
+    public boolean isConfident(double threshold) {
+      return isParsed() && confidence >= threshold;
+    }
+  }
+
+  private static class DateMatch {
+
+    private static final DateMatch INVALID = new DateMatch(null, null, true);
+
+    private final LocalDate date;
+    private final String remainingText;
+    private final boolean invalid;
+
+    private DateMatch(LocalDate date, String remainingText) {
+      this(date, remainingText, false);
+    }
+
+    private DateMatch(LocalDate date, String remainingText, boolean invalid) {
+      this.date = date;
+      this.remainingText = remainingText;
+      this.invalid = invalid;
+    }
+  }
+}
@@ -0,0 +1,78 @@
+package service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+import org.apache.commons.lang3.math.NumberUtils;
+
+import ch.ivyteam.ivy.environment.Ivy;
+
+/**
+ * Runs blocking LLM calls on virtual threads, so a waiting model round trip does not pin
+ * an Ivy request thread.
+ * <p>
+ * The number of calls running against the model server at the same time is bounded by
+ * {@code OpenAI.MaxConcurrentCalls}; further calls wait on a cheap virtual thread until a slot is free.
+ * Tasks run outside of the Ivy request context, so everything that needs it (variables, models)
+ * has to be resolved before submitting.
+ * </p>
+ */
+public final class AiExecutor {
+
+  private static final String VAR_MAX_CONCURRENT_CALLS = "OpenAI.MaxConcurrentCalls";
+  private static final int DEFAULT_MAX_CONCURRENT_CALLS = 64;
+
+  private static final ExecutorService EXECUTOR =
+      Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("ai-call-", 0).factory());
+
+  private static volatile Semaphore permits;
+
+  private AiExecutor() {}
+
+  /**
+   * Runs the task asynchronously once a concurrency slot is free.
+   *
+   * @param task the blocking call, e.g. an AI service method
+   * @return a future completed with the task's result or exception
+   */
+  public static <T> CompletableFuture<T> supplyAsync(Supplier<T> task) {
+    Semaphore slots = getPermits();
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        slots.acquire();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new CompletionException(e);
+      }
+      try {
+        return task.get();
+      } finally {
+        slots.release();
+      }
+    }, EXECUTOR);
+  }
+
+  /**
+   * @return number of calls currently waiting for a free slot
+   */
+  public static int getQueueLength() {
+    Semaphore current = permits;
+    return current == null ? 0 : current.getQueueLength();
+  }
+
+  private static Semaphore getPermits() {
+    if (permits == null) {
+      synchronized (AiExecutor.class) {
+        if (permits == null) {
+          int max = NumberUtils.toInt(Ivy.var().get(VAR_MAX_CONCURRENT_CALLS), DEFAULT_MAX_CONCURRENT_CALLS);
+          permits = new Semaphore(max > 0 ? max : DEFAULT_MAX_CONCURRENT_CALLS, true);
+        }
+      }
+    }
+    return permits;
+  }
+}
@@ -1,24 +1,186 @@
 package service;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+
 import ch.ivyteam.ivy.environment.Ivy;
+import dev.langchain4j.http.client.jdk.JdkHttpClient;
+import dev.langchain4j.http.client.jdk.JdkHttpClientBuilder;
 import dev.langchain4j.model.chat.Capability;
 import dev.langchain4j.model.openai.OpenAiChatModel;
-import dev.langchain4j.model.openai.OpenAiChatModelName;
+import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
+import metrics.LlmMetrics;
 
+/**
+ * Process-wide registry of {@link OpenAiChatModel} instances.
+ * <p>
+ * Models are thread-safe and expensive to create (own HTTP client, connection pool
+ * and capability setup), so every distinct configuration is built only once and
+ * reused by all requests. Connection settings are read from the {@code OpenAI.*}
+ * variables in {@code variables.yaml}. Every model reports its calls to {@link LlmMetrics}.
+ * </p>
+ */
 public final class OpenAiService {
-  
+
+  private static final String VAR_BASE_URL = "OpenAI.BaseUrl";
+  private static final String VAR_MODEL_NAME = "OpenAI.ModelName";
+  private static final String VAR_HTTP_THREADS = "OpenAI.HttpThreads";
+  private static final String VAR_CONNECT_TIMEOUT = "OpenAI.ConnectTimeout";
+  private static final String VAR_READ_TIMEOUT = "OpenAI.ReadTimeout";
+
+  private static final String DEFAULT_BASE_URL = "http://localhost:11434/v1/";
+  private static final String DEFAULT_MODEL_NAME = "qwen3:30b";
+  private static final int DEFAULT_HTTP_THREADS = 8;
+  private static final int DEFAULT_CONNECT_TIMEOUT_SECONDS = 10;
+  private static final int DEFAULT_READ_TIMEOUT_SECONDS = 300;
+
+  private static final Map<ModelKey, OpenAiChatModel> CHAT_MODELS = new ConcurrentHashMap<>();
+  private static final Map<ModelKey, OpenAiStreamingChatModel> STREAMING_CHAT_MODELS = new ConcurrentHashMap<>();
+
   /**
-   * Creates and returns an {@link OpenAiChatModel} configured 
+   * Shared by the HTTP clients of all models, sized by {@code OpenAI.HttpThreads}; named daemon threads that end when idle.
+   * It bounds the threads, not the connections: the JDK client pools kept-alive connections on its own, sized by the
+   * system property {@code jdk.httpclient.connectionPoolSize}.
+   */
+  private static volatile ExecutorService httpExecutor;
+
+  private OpenAiService() {}
+
+  /**
+   * Returns the shared {@link OpenAiChatModel} configured
    * to produce strict JSON schema-compliant outputs.
    *
    * @return a configured {@link OpenAiChatModel} instance
    */
   public static final OpenAiChatModel getJsonChatModel() {
+    return getChatModel(getBaseUrl(), getModelName(), true);
+  }
+
+  /**
+   * Returns the shared {@link OpenAiChatModel} for the given configuration,
+   * building it on first use.
+   *
+   * @param baseUrl base URL of the OpenAI compatible endpoint
+   * @param modelName name of the model to use
+   * @param strictJsonSchema whether responses must strictly comply with the requested JSON schema
+   * @return a long-lived, thread-safe {@link OpenAiChatModel} instance
+   */
+  public static OpenAiChatModel getChatModel(String baseUrl, String modelName, boolean strictJsonSchema) {
+    return CHAT_MODELS.computeIfAbsent(new ModelKey(baseUrl, modelName, strictJsonSchema), OpenAiService::buildChatModel);
+  }
+
+  /**
+   * Returns the shared {@link OpenAiStreamingChatModel} that streams JSON object responses
+   * token by token.
+   * <p>
+   * Streaming responses carry no JSON schema, so callers have to describe the expected
+   * structure in the prompt and parse the completed text themselves.
+   * </p>
+   *
+   * @return a configured {@link OpenAiStreamingChatModel} instance
+   */
+  public static OpenAiStreamingChatModel getStreamingJsonChatModel() {
+    return STREAMING_CHAT_MODELS.computeIfAbsent(new ModelKey(getBaseUrl(), getModelName(), false), key -> {
+      Ivy.log().info("Creating shared streaming chat model " + key);
+      LlmMetrics.startReporting();
+      return OpenAiStreamingChatModel.builder()
+          .httpClientBuilder(httpClientBuilder())
+          .baseUrl(key.baseUrl())
+          .modelName(key.modelName())
+          .responseFormat("json_object")
+          .listeners(List.of(LlmMetrics.listener()))
+          .build();
+    });
+  }
+
+  /**
+   * Drops all cached models, e.g. after the connection variables were changed.
+   * Models already handed out keep working until they are no longer referenced.
+   */
+  public static void reset() {
+    CHAT_MODELS.clear();
+    STREAMING_CHAT_MODELS.clear();
+  }
+
+  private static OpenAiChatModel buildChatModel(ModelKey key) {
+    Ivy.log().info("Creating shared chat model " + key);
+    LlmMetrics.startReporting();
     return OpenAiChatModel.builder()
-    	.baseUrl("http://localhost:11434/v1/")
-        .modelName("qwen3:30b")
+        .httpClientBuilder(httpClientBuilder())
+        .baseUrl(key.baseUrl())
+        .modelName(key.modelName())
         .supportedCapabilities(Capability.RESPONSE_FORMAT_JSON_SCHEMA) // Requests JSON schema output
-        .strictJsonSchema(true) // Enforces strict compliance with the provided JSON schema
+        .strictJsonSchema(key.strictJsonSchema()) // Enforces strict compliance with the provided JSON schema
+        .listeners(List.of(LlmMetrics.listener()))
         .build();
   }
+
+  /**
+   * HTTP/1.1 client builder: the JDK client keeps connections alive and reuses them
+   * for as long as the model (and thus its client) lives.
+   */
+  static JdkHttpClientBuilder httpClientBuilder() {
+    HttpClient.Builder jdkBuilder = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .executor(getHttpExecutor());
+
+    return JdkHttpClient.builder()
+        .httpClientBuilder(jdkBuilder)
+        .connectTimeout(Duration.ofSeconds(getIntVar(VAR_CONNECT_TIMEOUT, DEFAULT_CONNECT_TIMEOUT_SECONDS)))
+        .readTimeout(Duration.ofSeconds(getIntVar(VAR_READ_TIMEOUT, DEFAULT_READ_TIMEOUT_SECONDS)));
+  }
+
+  private static ExecutorService getHttpExecutor() {
+    if (httpExecutor == null) {
+      synchronized (OpenAiService.class) {
+        if (httpExecutor == null) {
+          int size = getIntVar(VAR_HTTP_THREADS, DEFAULT_HTTP_THREADS);
+          AtomicInteger count = new AtomicInteger();
+          ThreadPoolExecutor executor = new ThreadPoolExecutor(size, size, 60, TimeUnit.SECONDS,
+              new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "openai-http-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+              });
+          // idle threads end, so a redeployed application does not keep the old class loader alive through them
+          executor.allowCoreThreadTimeOut(true);
+          httpExecutor = executor;
+        }
+      }
+    }
+    return httpExecutor;
+  }
+
+  static String getBaseUrl() {
+    return StringUtils.defaultIfBlank(Ivy.var().get(VAR_BASE_URL), DEFAULT_BASE_URL);
+  }
+
+  static String getModelName() {
+    return StringUtils.defaultIfBlank(Ivy.var().get(VAR_MODEL_NAME), DEFAULT_MODEL_NAME);
+  }
+
+  private static int getIntVar(String name, int defaultValue) {
+    int value = NumberUtils.toInt(Ivy.var().get(name), defaultValue);
+    return value > 0 ? value : defaultValue;
+  }
+
+  /** Identifies one model configuration in the registry. */
+  private record ModelKey(String baseUrl, String modelName, boolean strictJsonSchema) {
+    private ModelKey {
+      Objects.requireNonNull(baseUrl, "baseUrl");
+      Objects.requireNonNull(modelName, "modelName");
+    }
+  }
 }
@@ -0,0 +1,51 @@
+package assitant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import entity.Option;
+
+class OptionClassifierTest {
+
+  private final OptionClassifier classifier = new OptionClassifier(List.of(
+      option("insert", "the message is about insert or create a transaction", false),
+      option("search", "the message is related to search transaction by some criteria", false),
+      option("clear", "the message is about update a transaction", true),
+      option("delete", "the message is about delete a transaction", true)));
+
+  @Test
+  void answersMessageCoveredByOneOption() {
+    assertEquals("insert", classifier.classify("create a transaction"));
+    assertEquals("search", classifier.classify("search transactions by criteria"));
+  }
+
+  @Test
+  void sharedKeywordDoesNotDecide() {
+    assertNull(classifier.classify("find the transaction I created for rent"));
+  }
+
+  @Test
+  void neverChoosesDestructiveOptionLocally() {
+    assertNull(classifier.classify("delete a transaction"));
+    assertNull(classifier.classify("show me transactions I deleted last week"));
+  }
+
+  @Test
+  void learnedMessagesExtendCoverage() {
+    assertNull(classifier.classify("record rent payment"));
+    classifier.learn("insert", "record rent payment");
+    assertEquals("insert", classifier.classify("record rent payment"));
+  }
+
+  private static Option option(String id, String condition, boolean destructive) {
+    Option option = new Option();
+    option.setId(id);
+    option.setCondition(condition);
+    option.setDestructive(destructive);
+    return option;
+  }
+}
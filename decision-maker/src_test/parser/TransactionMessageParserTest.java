@@ -0,0 +1,87 @@
+package parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.Test;
+
+import parser.TransactionMessageParser.ParseResult;
+
+class TransactionMessageParserTest {
+
+  private static final LocalDate TODAY = LocalDate.of(2025, 3, 14);
+
+  private final TransactionMessageParser parser = new TransactionMessageParser();
+
+  @Test
+  void parsesCommonMessage() {
+    ParseResult result = parser.parse("Paid 200k for Grab ride yesterday", TODAY);
+    assertTrue(result.isConfident(TransactionMessageParser.DEFAULT_CONFIDENCE_THRESHOLD));
+    assertEquals(200_000, result.getAmount(), 0);
+    assertFalse(result.isIncome());
+    assertEquals(TODAY.minusDays(1), result.getDate());
+    assertEquals("Grab ride", result.getDescription());
+  }
+
+  @Test
+  void parsesCategoryAndIncome() {
+    ParseResult result = parser.parse("salary 15m today", TODAY);
+    assertTrue(result.isConfident(TransactionMessageParser.DEFAULT_CONFIDENCE_THRESHOLD));
+    assertTrue(result.isIncome());
+    assertEquals("SALARY", result.getCategory());
+    assertEquals(TODAY, result.getDate());
+  }
+
+  @Test
+  void leavesUnresolvedDatesToTheModel() {
+    for (String message : new String[] {
+        "Paid 300k for dinner last Friday",
+        "Paid 300k for dinner tomorrow",
+        "Paid 300k for dinner on Monday",
+        "Paid 300k for dinner on the 3rd",
+        "Paid 300k for dinner in March",
+        "Paid 300k for dinner a week ago",
+        "Paid 300k for dinner next month"}) {
+      ParseResult result = parser.parse(message, TODAY);
+      assertFalse(result.isConfident(TransactionMessageParser.DEFAULT_CONFIDENCE_THRESHOLD), message);
+      assertFalse(result.isParsed(), message);
+    }
+  }
+
+  @Test
+  void dropsTimeOfDayFromDescription() {
+    ParseResult result = parser.parse("paid 20k for coffee yesterday morning", TODAY);
+    assertTrue(result.isConfident(TransactionMessageParser.DEFAULT_CONFIDENCE_THRESHOLD));
+    assertEquals(TODAY.minusDays(1), result.getDate());
+    assertEquals("Coffee", result.getDescription());
+
+    assertEquals("Coffee", parser.parse("paid 20k for coffee in the morning", TODAY).getDescription());
+  }
+
+  @Test
+  void dropsCurrencyFromDescription() {
+    ParseResult result = parser.parse("Paid 100 usd for shoes", TODAY);
+    assertTrue(result.isConfident(TransactionMessageParser.DEFAULT_CONFIDENCE_THRESHOLD));
+    assertEquals(100, result.getAmount(), 0);
+    assertEquals("CLOTHES", result.getCategory());
+    assertEquals("Shoes", result.getDescription());
+
+    assertEquals("Shoes", parser.parse("Paid $100 for shoes", TODAY).getDescription());
+  }
+
+  @Test
+  void keepsMessagesWithoutDate() {
+    ParseResult result = parser.parse("Paid 300k for dinner", TODAY);
+    assertTrue(result.isConfident(TransactionMessageParser.DEFAULT_CONFIDENCE_THRESHOLD));
+    assertEquals(TODAY, result.getDate());
+    assertEquals("FOOD", result.getCategory());
+  }
+
+  @Test
+  void rejectsAmbiguousAmounts() {
+    assertFalse(parser.parse("Paid 100k and 200k for lunch", TODAY).isParsed());
+  }
+}
@@ -14,6 +14,14 @@ import service.OpenAiService;
  * Assistant to handle AI-related tasks for Transaction. E.g., convert a user message into a structured Transaction object.
  */
 public class TransactionAssistant {
+
+  /**
+   * Proxy implementation of ITransactionAssistant generated by LangChain4j.
+   * Built once, as creating it reflects over the interface and generates the JSON schema;
+   * it holds no conversation state and is shared by all requests.
+   */
+  private static volatile ITransactionAssistant assistant;
+
   /**
    * Converts a natural language message (e.g. "Paid 200k for Grab ride yesterday")
    * into a Transaction entity using LangChain4j for structured JSON extraction.
@@ -22,23 +30,29 @@ public class TransactionAssistant {
    * @return A populated Transaction object parsed from the model's JSON output.
    */
   public Transaction createFromMessage(String message) {
-    
-    // Initialize OpenAI-backed service.
-    OpenAiService aiService = new OpenAiService();
 
-    // Build a proxy implementation of ITransactionAssistant using LangChain4j.
-    // This proxy will call the LLM, feed the annotated prompt, get back JSON, and parse into Transaction.
-    ITransactionAssistant assistant = AiServices
-        .builder(ITransactionAssistant.class)
-        .chatModel(aiService.getModel())
-        .build();
-
-    // Delegate to the generated stub interface method
-    Transaction t = assistant.createTransaction(message, new Date());
+    // Delegate to the shared proxy, which calls the LLM, feeds the annotated prompt, gets back JSON and parses it into Transaction.
+    Transaction t = getAssistant().createTransaction(message, new Date());
     Ivy.log().info("Transaction: t = " + t);
     return t;
   }
 
+  private static ITransactionAssistant getAssistant() {
+    if (assistant == null) {
+      synchronized (TransactionAssistant.class) {
+        if (assistant == null) {
+          // Initialize OpenAI-backed service.
+          OpenAiService aiService = new OpenAiService();
+          assistant = AiServices
+              .builder(ITransactionAssistant.class)
+              .chatModel(aiService.getModel())
+              .build();
+        }
+      }
+    }
+    return assistant;
+  }
+
   /**
    * Interface that defines the prompt and expected structure for LangChain4j.
    * LangChain4j uses dynamic proxy to generate code that:
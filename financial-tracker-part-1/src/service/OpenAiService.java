@@ -1,8 +1,25 @@
 package service;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+
 import ch.ivyteam.ivy.environment.Ivy;
 import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.http.client.jdk.JdkHttpClient;
 import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.listener.ChatModelErrorContext;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.chat.listener.ChatModelRequestContext;
+import dev.langchain4j.model.chat.listener.ChatModelResponseContext;
 import dev.langchain4j.model.chat.request.ChatRequest;
 import dev.langchain4j.model.chat.request.ResponseFormat;
 import dev.langchain4j.model.chat.request.ResponseFormatType;
@@ -32,20 +49,66 @@ public class OpenAiService {
   }
 
   /**
-   * Default constructor that initializes the OpenAI chat model with preset parameters:
-   * - Uses GPT-4_1_MINI model variant.
-   * - Sets temperature to 0 for deterministic responses.
-   * - Uses API key retrieved from environment or config via Ivy.var().
+   * Model shared by all service instances. Chat models are thread-safe, so building
+   * one per message would only recreate the HTTP client and its connection pool.
+   */
+  private static volatile OpenAiChatModel sharedModel;
+
+  /**
+   * Default constructor that uses the shared OpenAI chat model, created on first use with preset parameters:
+   * - Uses the base URL and model name from the OpenAI.BaseUrl / OpenAI.ModelName variables.
+   * - Keeps HTTP connections alive and timed out by OpenAI.ConnectTimeout / ReadTimeout; the client runs on
+   *   OpenAI.HttpThreads threads, its connection pool is sized by the system property jdk.httpclient.connectionPoolSize.
    * - Specifies that the model supports JSON schema response format.
    * - Enables strict JSON schema validation on responses.
+   * - Logs the latency and token usage of every call at debug level, see {@link CallLogger}.
    */
-  
   public OpenAiService() {
-    this.model = OpenAiChatModel.builder()
-        .baseUrl("http://localhost:11434/v1/")
-        .modelName("qwen3:30b")	
-        .supportedCapabilities(Capability.RESPONSE_FORMAT_JSON_SCHEMA)
-        .strictJsonSchema(true).build();
+    this.model = getSharedModel();
+  }
+
+  private static OpenAiChatModel getSharedModel() {
+    if (sharedModel == null) {
+      synchronized (OpenAiService.class) {
+        if (sharedModel == null) {
+          sharedModel = OpenAiChatModel.builder()
+              .httpClientBuilder(JdkHttpClient.builder()
+                  .httpClientBuilder(HttpClient.newBuilder()
+                      .version(HttpClient.Version.HTTP_1_1)
+                      .executor(newHttpExecutor(getIntVar("OpenAI.HttpThreads", 8))))
+                  .connectTimeout(Duration.ofSeconds(getIntVar("OpenAI.ConnectTimeout", 10)))
+                  .readTimeout(Duration.ofSeconds(getIntVar("OpenAI.ReadTimeout", 300))))
+              .baseUrl(StringUtils.defaultIfBlank(Ivy.var().get("OpenAI.BaseUrl"), "http://localhost:11434/v1/"))
+              .modelName(StringUtils.defaultIfBlank(Ivy.var().get("OpenAI.ModelName"), "qwen3:30b"))
+              .supportedCapabilities(Capability.RESPONSE_FORMAT_JSON_SCHEMA)
+              .strictJsonSchema(true)
+              .listeners(List.of(new CallLogger()))
+              .build();
+        }
+      }
+    }
+    return sharedModel;
+  }
+
+  /**
+   * Named daemon threads that end when idle, so neither a shutdown nor a redeployment waits for
+   * or keeps the pool of a model that is no longer used.
+   */
+  private static ExecutorService newHttpExecutor(int size) {
+    AtomicInteger count = new AtomicInteger();
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(size, size, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+        runnable -> {
+          Thread thread = new Thread(runnable, "openai-http-" + count.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  private static int getIntVar(String name, int defaultValue) {
+    int value = NumberUtils.toInt(Ivy.var().get(name), defaultValue);
+    return value > 0 ? value : defaultValue;
   }
 
 //  public OpenAiService() {
@@ -81,4 +144,40 @@ public class OpenAiService {
     ChatResponse result = model.chat(chatRequest);
     return result.aiMessage().text();
   }
-}
\ No newline at end of file
+
+  /**
+   * Logs duration and token usage of each model call, the request callback stores the start time
+   * in the attributes that LangChain4j hands on to the response callback.
+   * <p>
+   * Successful calls are logged at debug level, so a busy application does not write a line per call;
+   * failures are logged as warnings. It records no {@code metrics.LlmMetrics} and has no periodic report:
+   * part 1 is standalone and cannot depend on decision-maker, whose {@code service.OpenAiService} has the same
+   * name as this class.
+   * </p>
+   */
+  private static class CallLogger implements ChatModelListener {
+
+    private static final String START = "start";
+
+    @Override
+    public void onRequest(ChatModelRequestContext context) {
+      context.attributes().put(START, System.nanoTime());
+    }
+
+    @Override
+    public void onResponse(ChatModelResponseContext context) {
+      Ivy.log().debug("Model call took " + elapsedMillis(context.attributes().get(START)) + " ms, tokens: "
+          + context.chatResponse().tokenUsage());
+    }
+
+    @Override
+    public void onError(ChatModelErrorContext context) {
+      Ivy.log().warn("Model call failed after " + elapsedMillis(context.attributes().get(START)) + " ms: "
+          + context.error().getMessage());
+    }
+
+    private static long elapsedMillis(Object start) {
+      return start instanceof Long startNanos ? (System.nanoTime() - startNanos) / 1_000_000 : -1;
+    }
+  }
+}
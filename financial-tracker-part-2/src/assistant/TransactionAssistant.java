@@ -1,13 +1,22 @@
 package assistant;
 
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.Date;
+import java.util.Locale;
 
+import org.apache.commons.lang3.StringUtils;
+
+import cache.BoundedCache;
 import dev.langchain4j.service.AiServices;
 import dev.langchain4j.service.SystemMessage;
 import dev.langchain4j.service.UserMessage;
 import dev.langchain4j.service.V;
 import entity.Transaction;
+import entity.Transaction.Category;
+import entity.Transaction.Type;
 import entity.TransactionSearchCriteria;
+import parser.TransactionMessageParser;
 import service.OpenAiService;
 
 /**
@@ -16,24 +25,37 @@ import service.OpenAiService;
  * and parsing search queries into TransactionSearchCriteria for filtering.
  */
 public class TransactionAssistant {
+
+  /**
+   * Proxy implementation of ITransactionAssistant generated by LangChain4j.
+   * Built once, as creating it reflects over the interface and generates the JSON schemas;
+   * it holds no conversation state and is shared by all requests.
+   */
+  private static volatile ITransactionAssistant assistant;
+
+  private static final TransactionMessageParser PARSER = new TransactionMessageParser();
+
+  /** Parsed search criteria keyed by reference date and normalized message. */
+  private static final BoundedCache<String, TransactionSearchCriteria> SEARCH_CRITERIA_CACHE =
+      new BoundedCache<>(500, Duration.ofHours(6));
+
   /**
    * Converts a natural language message (e.g. "Paid 200k for Grab ride yesterday")
-   * into a Transaction entity using LangChain4j for structured JSON extraction.
+   * into a Transaction entity. Messages the {@link TransactionMessageParser} recognizes with enough
+   * confidence are parsed locally, all others use LangChain4j for structured JSON extraction.
    *
    * @param message The user-provided text describing the transaction.
    * @return A populated Transaction object parsed from the model's JSON output.
    */
   public Transaction createFromMessage(String message) {
+    // Common message shapes are parsed locally, the LLM is only asked when the parser is unsure
+    TransactionMessageParser.ParseResult parsed = PARSER.parse(message, LocalDate.now());
+    if (parsed.isConfident(TransactionMessageParser.DEFAULT_CONFIDENCE_THRESHOLD)) {
+      return toTransaction(parsed);
+    }
 
-    // Build a proxy implementation of ITransactionAssistant using LangChain4j.
-    // This proxy will call the LLM, feed the annotated prompt, get back JSON, and parse into Transaction.
-    ITransactionAssistant assistant = AiServices
-        .builder(ITransactionAssistant.class)
-        .chatModel(OpenAiService.getJsonChatModel())
-        .build();
-
-    // Delegate to the generated stub interface method
-    Transaction newTransaction = assistant.createTransaction(message, new Date());
+    // Delegate to the shared proxy, which calls the LLM and parses the JSON into Transaction.
+    Transaction newTransaction = getAssistant().createTransaction(message, new Date());
 
     return newTransaction;
   }
@@ -46,20 +68,61 @@ public class TransactionAssistant {
    * @return A populated TransactionSearchCriteria object parsed from the model's JSON output.
    */
   public TransactionSearchCriteria createSearchCriteriaFromMessage(String message) {
+    // Relative phrases like "yesterday" depend on the reference date, so it is part of the key
+    LocalDate today = LocalDate.now();
+    String cacheKey = today + "|" + normalize(message);
 
-    // Build a proxy implementation of ITransactionAssistant using LangChain4j.
-    // This proxy will call the LLM, feed the annotated prompt, get back JSON, and parse into TransactionSearchCriteria.
-    ITransactionAssistant assistant = AiServices
-        .builder(ITransactionAssistant.class)
-        .chatModel(OpenAiService.getJsonChatModel())
-        .build();
+    TransactionSearchCriteria cached = SEARCH_CRITERIA_CACHE.get(cacheKey);
+    if (cached != null) {
+      return cached.copy();
+    }
 
-    // Delegate to the generated stub interface method
-    TransactionSearchCriteria searchCriteria = assistant.createSearchCriteria(message, new Date());
+    // Delegate to the shared proxy, which calls the LLM and parses the JSON into TransactionSearchCriteria.
+    TransactionSearchCriteria searchCriteria = getAssistant().createSearchCriteria(message, today);
 
+    if (searchCriteria != null) {
+      SEARCH_CRITERIA_CACHE.put(cacheKey, searchCriteria.copy());
+    }
     return searchCriteria;
   }
 
+  /**
+   * Cache of parsed search criteria, e.g. to expose its hit, miss and eviction counts.
+   */
+  public static BoundedCache<String, TransactionSearchCriteria> getSearchCriteriaCache() {
+    return SEARCH_CRITERIA_CACHE;
+  }
+
+  private static Transaction toTransaction(TransactionMessageParser.ParseResult parsed) {
+    Transaction transaction = new Transaction();
+    transaction.setAmount(parsed.getAmount());
+    transaction.setType(parsed.isIncome() ? Type.INCOME : Type.EXPENSE);
+    transaction.setCategory(Category.valueOf(parsed.getCategory()));
+    transaction.setDescription(parsed.getDescription());
+    transaction.setDate(parsed.getDate());
+    return transaction;
+  }
+
+  /** Lower-cases, collapses whitespace and drops trailing punctuation so trivial variants share one entry. */
+  private static String normalize(String message) {
+    String normalized = StringUtils.normalizeSpace(StringUtils.defaultString(message)).toLowerCase(Locale.ROOT);
+    return StringUtils.stripEnd(normalized, ".!?");
+  }
+
+  private static ITransactionAssistant getAssistant() {
+    if (assistant == null) {
+      synchronized (TransactionAssistant.class) {
+        if (assistant == null) {
+          assistant = AiServices
+              .builder(ITransactionAssistant.class)
+              .chatModel(OpenAiService.getJsonChatModel())
+              .build();
+        }
+      }
+    }
+    return assistant;
+  }
+
   /**
    * Interface that defines the prompt and expected structure for LangChain4j.
    * LangChain4j uses dynamic proxy to generate code that:
@@ -101,6 +164,6 @@ public class TransactionAssistant {
         - Do not assume a category, type, or description unless directly written in the query.
     """)
     @UserMessage("{{message}}")
-    public TransactionSearchCriteria createSearchCriteria(@V("message") String message, @V("today") Date date);
+    public TransactionSearchCriteria createSearchCriteria(@V("message") String message, @V("today") LocalDate today);
   }
 }
\ No newline at end of file
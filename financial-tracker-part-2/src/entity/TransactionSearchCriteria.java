@@ -95,6 +95,22 @@ public class TransactionSearchCriteria {
         this.toDate = toDate;
     }
 
+    /**
+     * Creates an independent copy of this search criteria.
+     * @return a new instance with the same filter values
+     */
+    public TransactionSearchCriteria copy() {
+        TransactionSearchCriteria copy = new TransactionSearchCriteria();
+        copy.setMinAmount(minAmount);
+        copy.setMaxAmount(maxAmount);
+        copy.setType(type);
+        copy.setCategory(category);
+        copy.setDescriptionContains(descriptionContains);
+        copy.setFromDate(fromDate);
+        copy.setToDate(toDate);
+        return copy;
+    }
+
     /**
      * Checks if this search criteria has any filters set.
      * @return true if at least one search criterion is specified, false otherwise
@@ -104,7 +120,7 @@ public class TransactionSearchCriteria {
                maxAmount != null || 
                type != null || 
                category != null || 
-               StringUtils.isBlank(descriptionContains) ||
+               StringUtils.isNotBlank(descriptionContains) ||
                fromDate != null || 
                toDate != null;
     }
@@ -0,0 +1,102 @@
+package agent;
+
+import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Runs tasks submitted from other threads on the thread that created the executor.
+ * <p>
+ * Streaming model callbacks arrive on HTTP client threads, which have no Ivy context, so
+ * {@code Ivy.repo()} or {@code Ivy.var()} fail there. The request thread creates the executor, starts the
+ * stream and then drains the queue with {@link #runUntil(Future, Duration)} until the stream is finished;
+ * callers on other threads block in {@link #call(Supplier)} until their task ran.
+ * </p>
+ */
+final class RequestThreadExecutor {
+
+  private static final long POLL_MILLIS = 50;
+
+  private final Thread owner = Thread.currentThread();
+  private final BlockingQueue<FutureTask<?>> tasks = new LinkedBlockingQueue<>();
+  private boolean closed;
+
+  /**
+   * Runs the task on the owner thread and waits for its result.
+   *
+   * @throws CancellationException if the executor was closed before the task ran
+   */
+  <T> T call(Supplier<T> task) {
+    if (Thread.currentThread() == owner) {
+      return task.get();
+    }
+    FutureTask<T> future = new FutureTask<>(task::get);
+    synchronized (this) {
+      if (closed) {
+        throw new CancellationException("The request that started the run is finished");
+      }
+      tasks.add(future);
+    }
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException runtime) {
+        throw runtime;
+      }
+      if (e.getCause() instanceof Error error) {
+        throw error;
+      }
+      throw new IllegalStateException(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      future.cancel(false);
+      throw new CancellationException("Interrupted while waiting for the request thread");
+    }
+  }
+
+  /**
+   * Runs queued tasks on the owner thread until {@code done} is completed, then closes the executor.
+   *
+   * @param done completed when no more tasks will be submitted
+   * @param timeout maximum time to wait for {@code done}
+   * @throws TimeoutException if {@code done} is not completed in time
+   * @throws InterruptedException if the owner thread was interrupted
+   */
+  void runUntil(Future<?> done, Duration timeout) throws TimeoutException, InterruptedException {
+    if (Thread.currentThread() != owner) {
+      throw new IllegalStateException("Only the thread that created the executor can run its tasks");
+    }
+    long deadline = System.nanoTime() + timeout.toNanos();
+    try {
+      while (!done.isDone()) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          throw new TimeoutException("No response within " + timeout);
+        }
+        FutureTask<?> task = tasks.poll(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(POLL_MILLIS)),
+            TimeUnit.NANOSECONDS);
+        if (task != null) {
+          task.run();
+        }
+      }
+    } finally {
+      close();
+    }
+  }
+
+  /** Rejects new tasks and cancels the ones nobody will run anymore. */
+  private synchronized void close() {
+    closed = true;
+    FutureTask<?> task;
+    while ((task = tasks.poll()) != null) {
+      task.cancel(false);
+    }
+  }
+}
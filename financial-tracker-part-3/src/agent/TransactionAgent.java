@@ -1,24 +1,271 @@
 package agent;
 
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
 
+import dev.langchain4j.agent.tool.Tool;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.agent.tool.ToolSpecifications;
+import dev.langchain4j.internal.Json;
 import dev.langchain4j.service.AiServices;
 import dev.langchain4j.service.SystemMessage;
+import dev.langchain4j.service.TokenStream;
 import dev.langchain4j.service.UserMessage;
 import dev.langchain4j.service.V;
+import dev.langchain4j.service.tool.DefaultToolExecutor;
+import dev.langchain4j.service.tool.ToolExecutor;
+import dev.langchain4j.service.tool.ToolProviderRequest;
+import dev.langchain4j.service.tool.ToolProviderResult;
 import entity.TransactionAgentResponse;
+import metrics.LlmMetrics;
 import service.OpenAiService;
 
 public class TransactionAgent {
 
+  /**
+   * LangChain4j proxy, built once and shared by all requests.
+   * It keeps no chat memory and the tools are stateless, so it is safe to use concurrently.
+   */
+  private static volatile ITransactionAgent agent;
+
+  /** Streaming counterpart of {@link #agent}. */
+  private static volatile ITransactionStreamingAgent streamingAgent;
+
+  /** Converts streamed answers that did not come from a tool into a {@link TransactionAgentResponse}. */
+  private static volatile ITransactionResponseParser responseParser;
+
+  /** Tools of the streaming agent, built together with {@link #streamingAgent}. */
+  private static List<StreamingTool> streamingTools;
+
+  /** Run of the {@link #streamTool(String, TransactionAgentListener)} call on the current thread. */
+  private static final ThreadLocal<ToolRun> TOOL_RUN = new ThreadLocal<>();
+
+  private static final String STREAM_OPERATION = "TransactionAgent.streamTool";
+
+  private static final Duration STREAM_TIMEOUT = Duration.ofMinutes(2);
+
   public TransactionAgentResponse runTool(String message) {
-    ITransactionAgent agent = AiServices
-        .builder(ITransactionAgent.class)
-        .chatModel(OpenAiService.getJsonChatModel())
-        .tools(new TransactionTools())
-        .build();
+    return LlmMetrics.measure("TransactionAgent.runTool", () -> getAgent().answerWithTool(message, new Date()));
+  }
+
+  /**
+   * Streaming variant of {@link #runTool(String)}: reports the model's short plain-text answer and tool progress to
+   * the listener while they are generated, and finally the typed {@link TransactionAgentResponse} of the last tool.
+   * <p>
+   * Blocks until the run is finished or {@link #STREAM_TIMEOUT} passed; events after a timeout are dropped. Tools are executed on the calling thread, which must be an Ivy request
+   * thread, since they need the Ivy context that the model's HTTP threads do not have.
+   * </p>
+   *
+   * @param message the user's message
+   * @param listener receives the events of this run
+   */
+  public void streamTool(String message, TransactionAgentListener listener) {
+    // Model calls after a tool run on HTTP threads, so tool calls are counted here rather than by the model listener
+    LlmMetrics.Run run = LlmMetrics.start(STREAM_OPERATION);
+    ToolRun toolRun = new ToolRun();
+    StringBuilder output = new StringBuilder();
+    CompletableFuture<String> completion = new CompletableFuture<>();
+    try {
+      TokenStream stream;
+      TOOL_RUN.set(toolRun);
+      try {
+        stream = getStreamingAgent().answerWithTool(message, new Date());
+      } finally {
+        TOOL_RUN.remove();
+      }
+      // LangChain4j cannot cancel a started stream: after a timeout its events are ignored, and its tool calls
+      // are rejected since the executor is closed, so the model gets no further round trip
+      stream
+          .onPartialResponse(text -> {
+            if (toolRun.finished) {
+              return;
+            }
+            synchronized (output) {
+              output.append(text);
+            }
+            listener.onPartialResponse(text);
+          })
+          .beforeToolExecution(before -> {
+            if (!toolRun.finished) {
+              listener.onProgress(describeStart(before.request()));
+            }
+          })
+          .onToolExecuted(execution -> {
+            if (!toolRun.finished) {
+              run.toolCalled();
+              listener.onProgress(describeResult(execution.request(), execution.result()));
+            }
+          })
+          .onCompleteResponse(response -> completion.complete(response.aiMessage().text()))
+          .onError(completion::completeExceptionally)
+          .start();
+
+      try {
+        toolRun.executor.runUntil(completion, STREAM_TIMEOUT);
+      } finally {
+        toolRun.finished = true;
+      }
+      String text = completion.join();
+      TransactionAgentResponse result = toolRun.lastResponse;
+      if (result == null) {
+        synchronized (output) {
+          result = parseResponse(text != null ? text : output.toString());
+        }
+      }
+      run.finish(null);
+      listener.onComplete(result);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      run.finish(e);
+      listener.onError(e);
+    } catch (CompletionException e) {
+      run.finish(e.getCause());
+      listener.onError(e.getCause());
+    } catch (TimeoutException | RuntimeException e) {
+      run.finish(e);
+      listener.onError(e);
+    }
+  }
+
+  /**
+   * Converts a streamed answer that no tool produced, e.g. a clarifying question, with the schema-backed model.
+   * Answers after a tool are only shown, the typed result is the tool's own.
+   */
+  private static TransactionAgentResponse parseResponse(String text) {
+    try {
+      return getResponseParser().parse(text);
+    } catch (RuntimeException e) {
+      LlmMetrics.parseFailure(STREAM_OPERATION);
+      throw e;
+    }
+  }
+
+  /**
+   * Tools of the streaming agent, handed out per run by {@link #provideTools(ToolProviderRequest)}. LangChain4j
+   * asks for them on the thread that invokes the proxy, which is where {@link #TOOL_RUN} is set.
+   */
+  private static ToolProviderResult provideTools(ToolProviderRequest request) {
+    ToolRun toolRun = TOOL_RUN.get();
+    if (toolRun == null) {
+      throw new IllegalStateException("The streaming agent can only be invoked by streamTool");
+    }
+    ToolProviderResult.Builder result = ToolProviderResult.builder();
+    for (StreamingTool tool : streamingTools) {
+      result.add(tool.specification(), (toolRequest, memoryId) -> {
+        String json = toolRun.executor.call(() -> tool.executor().execute(toolRequest, memoryId));
+        if (tool.returnsResponse()) {
+          toolRun.lastResponse = Json.fromJson(json, TransactionAgentResponse.class);
+        }
+        return json;
+      });
+    }
+    return result.build();
+  }
+
+  private static List<StreamingTool> streamingTools(Object tools) {
+    List<StreamingTool> result = new ArrayList<>();
+    for (Method method : tools.getClass().getMethods()) {
+      if (method.isAnnotationPresent(Tool.class)) {
+        result.add(new StreamingTool(ToolSpecifications.toolSpecificationFrom(method),
+            new DefaultToolExecutor(tools, method), method.getReturnType() == TransactionAgentResponse.class));
+      }
+    }
+    return result;
+  }
+
+  private static String describeStart(ToolExecutionRequest request) {
+    switch (request.name()) {
+      case "createTransactionTool":
+        return "Creating transaction…";
+      case "createTransactionsTool":
+        return "Creating transactions…";
+      case "searchTransactions":
+      case "searchOneTransaction":
+        return "Searching transactions…";
+      case "aggregateTransactions":
+        return "Computing totals…";
+      case "updateTransaction":
+        return "Updating transaction…";
+      case "deleteTransaction":
+        return "Deleting transaction…";
+      default:
+        return "Running " + request.name() + "…";
+    }
+  }
+
+  private static String describeResult(ToolExecutionRequest request, String result) {
+    if ("searchTransactions".equals(request.name())) {
+      try {
+        TransactionAgentResponse response = Json.fromJson(result, TransactionAgentResponse.class);
+        int count = response.getTransactions() == null ? 0 : response.getTransactions().size();
+        return "Found " + count + (count == 1 ? " transaction" : " transactions");
+      } catch (RuntimeException e) {
+        // fall through to the generic message, progress events are informative only
+      }
+    }
+    return "Finished " + request.name();
+  }
+
+  private static ITransactionAgent getAgent() {
+    if (agent == null) {
+      synchronized (TransactionAgent.class) {
+        if (agent == null) {
+          agent = AiServices
+              .builder(ITransactionAgent.class)
+              .chatModel(OpenAiService.getJsonChatModel())
+              .tools(new TransactionTools())
+              .build();
+        }
+      }
+    }
+    return agent;
+  }
 
-    return agent.answerWithTool(message, new Date());
+  private static ITransactionStreamingAgent getStreamingAgent() {
+    if (streamingAgent == null) {
+      synchronized (TransactionAgent.class) {
+        if (streamingAgent == null) {
+          streamingTools = streamingTools(new TransactionTools());
+          streamingAgent = AiServices
+              .builder(ITransactionStreamingAgent.class)
+              .streamingChatModel(OpenAiService.getStreamingJsonChatModel())
+              .toolProvider(TransactionAgent::provideTools)
+              .build();
+        }
+      }
+    }
+    return streamingAgent;
+  }
+
+  private static ITransactionResponseParser getResponseParser() {
+    if (responseParser == null) {
+      synchronized (TransactionAgent.class) {
+        if (responseParser == null) {
+          responseParser = AiServices
+              .builder(ITransactionResponseParser.class)
+              .chatModel(OpenAiService.getJsonChatModel())
+              .build();
+        }
+      }
+    }
+    return responseParser;
+  }
+
+  private record StreamingTool(ToolSpecification specification, ToolExecutor executor, boolean returnsResponse) {}
+
+  /** Tools and result of one streamed run. */
+  private static final class ToolRun {
+    private final RequestThreadExecutor executor = new RequestThreadExecutor();
+    private volatile TransactionAgentResponse lastResponse;
+    /** Set once the caller stopped waiting, later events of the stream are ignored. */
+    private volatile boolean finished;
   }
 
   public interface ITransactionAgent {
@@ -29,8 +276,40 @@ public class TransactionAgent {
         ---
         Business rules:
         - Before delete or update a transaction, must retrieve information of it.
+        - For totals, counts or averages use aggregateTransactions instead of searching and computing yourself.
+        - A search result with hasMore true lists only part of the totalCount matches, never treat it as complete.
         """)
     @UserMessage("{{message}}")
     TransactionAgentResponse answerWithTool(@V("message") String message, @V("today") Date today);
   }
+
+  public interface ITransactionStreamingAgent {
+    @SystemMessage("""
+        You are an assistant that can use tools when needed.
+        Today: {{today}}
+
+        ---
+        Business rules:
+        - Before delete or update a transaction, must retrieve information of it.
+        - For totals, counts or averages use aggregateTransactions instead of searching and computing yourself.
+        - A search result with hasMore true lists only part of the totalCount matches, never treat it as complete.
+
+        ---
+        Output:
+        The user already sees the result of the tools. Answer in one or two short plain-text sentences,
+        e.g. "Recorded 200,000 for a Grab ride yesterday." Never repeat the tool's JSON or list its fields.
+        If you need more information, ask for it in one short question.
+        """)
+    @UserMessage("{{message}}")
+    TokenStream answerWithTool(@V("message") String message, @V("today") Date today);
+  }
+
+  public interface ITransactionResponseParser {
+    @SystemMessage("""
+        Convert the assistant's answer below into the response object.
+        Keep transactions, aggregates and error messages exactly as written; use null for anything it does not contain.
+        """)
+    @UserMessage("{{answer}}")
+    TransactionAgentResponse parse(@V("answer") String answer);
+  }
 }
@@ -0,0 +1,34 @@
+package agent;
+
+import entity.TransactionAgentResponse;
+
+/**
+ * Receives the events of a streamed {@link TransactionAgent} run.
+ * <p>
+ * Partial responses and progress events arrive on the model's HTTP client threads, while {@link #onComplete}
+ * and {@link #onError} are called on the thread running the agent, so implementations must be thread-safe.
+ * </p>
+ */
+public interface TransactionAgentListener {
+
+  /**
+   * A chunk of the model's output as soon as it is generated.
+   */
+  void onPartialResponse(String text);
+
+  /**
+   * A human readable progress event, e.g. "Searching transactions…" or "Found 12 transactions".
+   */
+  void onProgress(String event);
+
+  /**
+   * The final typed response: the result of the last tool, or the complete output converted by the
+   * schema-backed model if no tool produced one.
+   */
+  void onComplete(TransactionAgentResponse response);
+
+  /**
+   * The run failed, no further events follow.
+   */
+  void onError(Throwable error);
+}
@@ -1,14 +1,21 @@
 package agent;
 
+import java.util.Arrays;
 import java.util.List;
 
 import assistant.TransactionAssistant;
+import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
 import entity.Transaction;
 import entity.TransactionAgentResponse;
+import entity.TransactionAggregate;
+import entity.TransactionAggregate.GroupBy;
+import entity.TransactionPage;
 import entity.TransactionSearchCriteria;
 import enums.TransactionAction;
+import repo.TransactionConflictException;
 import repo.TransactionRepository;
+import repo.TransactionWriteException;
 
 /**
  * A collection of tools for handling transactions.
@@ -48,11 +55,42 @@ public class TransactionTools {
         .build();
   }
 
+  /**
+   * Creates many transactions at once, e.g. when importing notes.
+   *
+   * @param messages the transactions to create, one per line
+   * @return the newly created Transactions saved in the repository wrapped inside @TransactionAgentResponse
+   */
+  @Tool("Use when intends to create or record several transactions at once. Pass all of them, one per line.")
+  public TransactionAgentResponse createTransactionsTool(String messages) {
+
+    // Use TransactionAssistant to create the Transaction objects in batches
+    List<Transaction> newTransactions = assistant.createFromMessages(Arrays.asList(messages.split("\\R")));
+
+    // Persist all new Transaction objects to repo
+    try {
+      TransactionRepository.getInstance().createAll(newTransactions);
+    } catch (TransactionWriteException e) {
+      // Show the saved ones and tell which could not be saved
+      return TransactionAgentResponse.builder()
+          .action(TransactionAction.INSERT)
+          .transactions(e.getSaved())
+          .errorMessage(e.getMessage())
+          .build();
+    }
+
+    return TransactionAgentResponse.builder()
+        .action(TransactionAction.INSERT)
+        .transactions(newTransactions)
+        .build();
+  }
+
   /**
    * Searches for transactions matching criteria described in natural language.
    *
    * @param message search query (e.g., "Find all food expenses over 100k last month")
-   * @return list of matching transactions wrapped inside @TransactionAgentResponse
+   * @return one page of matching transactions wrapped inside @TransactionAgentResponse, with the total count and
+   *         whether more would match; the page has the requested number of transactions or the repository's default
    */
   @Tool("Use when need to find list of transactions matching criteria.")
   public TransactionAgentResponse searchTransactions(String message) {
@@ -60,16 +98,40 @@ public class TransactionTools {
     TransactionSearchCriteria searchCriteria =
         assistant.createSearchCriteriaFromMessage(message);
 
-    // Use search criteria to find transactions in the repo
-    List<Transaction> matchedTransactions = 
-      TransactionRepository.getInstance().findBySearchCriteria(searchCriteria);
+    // Always a single page: without an explicit limit (e.g. "last 5") the default page size applies
+    TransactionPage page = TransactionRepository.getInstance().findPageBySearchCriteria(searchCriteria);
 
     // Build agent response:
     // Set type: SEARCH
     // Set transactions: found transactions from repo
     return TransactionAgentResponse.builder()
         .action(TransactionAction.SEARCH)
-        .transactions(matchedTransactions)
+        .transactions(page.getTransactions())
+        .hasMore(page.isHasMore())
+        .totalCount(page.getTotalCount())
+        .build();
+  }
+
+  /**
+   * Computes totals of the transactions matching criteria described in natural language.
+   *
+   * @param message which transactions to aggregate (e.g., "Food expenses this month")
+   * @param groupBy how to group the totals
+   * @return count, sum, average, min and max per group wrapped inside @TransactionAgentResponse
+   */
+  @Tool("Use when asked for a total, count, average, minimum or maximum of transactions, e.g. spending per category. "
+      + "Returns the numbers instead of the transactions.")
+  public TransactionAgentResponse aggregateTransactions(
+      @P("which transactions to aggregate, in natural language") String message,
+      @P("NONE for a single total, or CATEGORY, TYPE, DAY, WEEK or MONTH to get one total per group") GroupBy groupBy) {
+    TransactionSearchCriteria searchCriteria = assistant.createSearchCriteriaFromMessage(message);
+
+    List<TransactionAggregate> aggregates =
+        TransactionRepository.getInstance().aggregate(searchCriteria, groupBy);
+
+    return TransactionAgentResponse.builder()
+        .action(TransactionAction.AGGREGATE)
+        .aggregates(aggregates)
         .build();
   }
 
@@ -105,7 +167,15 @@ public class TransactionTools {
       error = "Transaction cannot be empty";
     }
     
-    Transaction updated = TransactionRepository.getInstance().update(transaction);
+    Transaction updated = null;
+    try {
+      updated = TransactionRepository.getInstance().update(transaction);
+    } catch (TransactionConflictException e) {
+      // No action, so that the dialog shows the error instead of applying the update
+      return TransactionAgentResponse.builder()
+          .errorMessage(e.getMessage())
+          .build();
+    }
     return TransactionAgentResponse.builder()
         .action(TransactionAction.UPDATE)
         .transaction(updated)
@@ -122,6 +192,11 @@ public class TransactionTools {
   @Tool("Use when need to retrieve information of a transaction.")
   public Transaction searchOneTransaction(String message) {
     TransactionSearchCriteria searchCriteria = assistant.createSearchCriteriaFromMessage(message);
-    return TransactionRepository.getInstance().findBySearchCriteria(searchCriteria).get(0);
+    if (searchCriteria != null && searchCriteria.getLimit() == null) {
+      // Only the first match is used, so do not load the others
+      searchCriteria.setLimit(1);
+    }
+    // The result is the target of an update or delete, so a description with a typo must not stand in for it
+    return TransactionRepository.getInstance().findBySearchCriteria(searchCriteria, false).get(0);
   }
 }
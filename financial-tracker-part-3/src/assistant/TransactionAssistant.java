@@ -1,11 +1,28 @@
 package assistant;
 
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.apache.commons.lang3.StringUtils;
+
+import cache.BoundedCache;
 import dev.langchain4j.service.AiServices;
 import dev.langchain4j.service.SystemMessage;
 import dev.langchain4j.service.UserMessage;
 import dev.langchain4j.service.V;
 import entity.Transaction;
+import entity.Transaction.Category;
+import entity.Transaction.Type;
+import entity.TransactionBatch;
 import entity.TransactionSearchCriteria;
+import metrics.LlmMetrics;
+import parser.TransactionMessageParser;
+import service.AiExecutor;
 import service.OpenAiService;
 
 /**
@@ -14,24 +31,44 @@ import service.OpenAiService;
  * and parsing search queries into TransactionSearchCriteria for filtering.
  */
 public class TransactionAssistant {
+
+  /**
+   * Proxy implementation of ITransactionAssistant generated by LangChain4j.
+   * Built once, as creating it reflects over the interface and generates the JSON schemas;
+   * it holds no conversation state and is shared by all requests.
+   */
+  private static volatile ITransactionAssistant assistant;
+
+  private static final TransactionMessageParser PARSER = new TransactionMessageParser();
+
+  /** Upper bounds of one batch prompt, keeps prompt and answer well inside the model's context window. */
+  private static final int MAX_BATCH_MESSAGES = 25;
+  private static final int MAX_BATCH_CHARACTERS = 4000;
+
+  private static final String OPERATION_CREATE_TRANSACTIONS = "TransactionAssistant.createTransactions";
+
+  /** Parsed search criteria keyed by reference date and normalized message. */
+  private static final BoundedCache<String, TransactionSearchCriteria> SEARCH_CRITERIA_CACHE =
+      new BoundedCache<>(500, Duration.ofHours(6));
+
   /**
    * Converts a natural language message (e.g. "Paid 200k for Grab ride yesterday")
-   * into a Transaction entity using LangChain4j for structured JSON extraction.
+   * into a Transaction entity. Messages the {@link TransactionMessageParser} recognizes with enough
+   * confidence are parsed locally, all others use LangChain4j for structured JSON extraction.
    *
    * @param message The user-provided text describing the transaction.
    * @return A populated Transaction object parsed from the model's JSON output.
    */
   public Transaction createFromMessage(String message) {
+    // Common message shapes are parsed locally, the LLM is only asked when the parser is unsure
+    TransactionMessageParser.ParseResult parsed = PARSER.parse(message, LocalDate.now());
+    if (parsed.isConfident(TransactionMessageParser.DEFAULT_CONFIDENCE_THRESHOLD)) {
+      return toTransaction(parsed);
+    }
 
-    // Build a proxy implementation of ITransactionAssistant using LangChain4j.
-    // This proxy will call the LLM, feed the annotated prompt, get back JSON, and parse into Transaction.
-    ITransactionAssistant assistant = AiServices
-        .builder(ITransactionAssistant.class)
-        .chatModel(OpenAiService.getJsonChatModel())
-        .build();
-
-    // Delegate to the generated stub interface method
-    Transaction newTransaction = assistant.createTransaction(message);
+    // Delegate to the shared proxy, which calls the LLM and parses the JSON into Transaction.
+    Transaction newTransaction = LlmMetrics.measure("TransactionAssistant.createTransaction",
+        () -> getAssistant().createTransaction(message));
 
     return newTransaction;
   }
@@ -44,20 +81,199 @@ public class TransactionAssistant {
    * @return A populated TransactionSearchCriteria object parsed from the model's JSON output.
    */
   public TransactionSearchCriteria createSearchCriteriaFromMessage(String message) {
+    // Relative phrases like "yesterday" depend on the reference date, so it is part of the key
+    LocalDate today = LocalDate.now();
+    String cacheKey = today + "|" + normalize(message);
 
-    // Build a proxy implementation of ITransactionAssistant using LangChain4j.
-    // This proxy will call the LLM, feed the annotated prompt, get back JSON, and parse into TransactionSearchCriteria.
-    ITransactionAssistant assistant = AiServices
-        .builder(ITransactionAssistant.class)
-        .chatModel(OpenAiService.getJsonChatModel())
-        .build();
+    TransactionSearchCriteria cached = SEARCH_CRITERIA_CACHE.get(cacheKey);
+    if (cached != null) {
+      return cached.copy();
+    }
 
-    // Delegate to the generated stub interface method
-    TransactionSearchCriteria searchCriteria = assistant.createSearchCriteria(message);
+    // Delegate to the shared proxy, which calls the LLM and parses the JSON into TransactionSearchCriteria.
+    TransactionSearchCriteria searchCriteria = LlmMetrics.measure("TransactionAssistant.createSearchCriteria",
+        () -> getAssistant().createSearchCriteria(message, today));
 
+    if (searchCriteria != null) {
+      SEARCH_CRITERIA_CACHE.put(cacheKey, searchCriteria.copy());
+    }
     return searchCriteria;
   }
 
+  /**
+   * Converts many messages (e.g. the lines of an import) into Transaction entities.
+   * Messages the {@link TransactionMessageParser} recognizes are parsed locally; the rest is sent to the LLM
+   * in numbered batches, so that one model round trip covers many messages, and the batches run concurrently.
+   *
+   * @param messages The user-provided texts, one transaction each.
+   * @return The parsed transactions in the order of the messages, blank messages are skipped.
+   */
+  public List<Transaction> createFromMessages(List<String> messages) {
+    LocalDate today = LocalDate.now();
+    List<String> texts = new ArrayList<>();
+    for (String message : messages) {
+      if (StringUtils.isNotBlank(message)) {
+        texts.add(message.strip());
+      }
+    }
+
+    Transaction[] results = new Transaction[texts.size()];
+    List<Integer> pending = new ArrayList<>();
+    for (int i = 0; i < texts.size(); i++) {
+      TransactionMessageParser.ParseResult parsed = PARSER.parse(texts.get(i), today);
+      if (parsed.isConfident(TransactionMessageParser.DEFAULT_CONFIDENCE_THRESHOLD)) {
+        results[i] = toTransaction(parsed);
+      } else {
+        pending.add(i);
+      }
+    }
+
+    // Chunk the remaining messages by count and size
+    List<List<Integer>> chunks = new ArrayList<>();
+    List<Integer> chunk = new ArrayList<>();
+    int chunkCharacters = 0;
+    for (int index : pending) {
+      int length = texts.get(index).length();
+      if (!chunk.isEmpty() && (chunk.size() >= MAX_BATCH_MESSAGES || chunkCharacters + length > MAX_BATCH_CHARACTERS)) {
+        chunks.add(chunk);
+        chunk = new ArrayList<>();
+        chunkCharacters = 0;
+      }
+      chunk.add(index);
+      chunkCharacters += length;
+    }
+    if (!chunk.isEmpty()) {
+      chunks.add(chunk);
+    }
+    createChunks(texts, chunks, results, today);
+
+    List<Transaction> transactions = new ArrayList<>();
+    for (Transaction transaction : results) {
+      if (transaction != null) {
+        transactions.add(transaction);
+      }
+    }
+    return transactions;
+  }
+
+  /**
+   * Sends the chunks to the model concurrently on the {@link AiExecutor}; each chunk fills its own slots of
+   * {@code results}. A single chunk is sent on the calling thread.
+   */
+  private void createChunks(List<String> texts, List<List<Integer>> chunks, Transaction[] results, LocalDate today) {
+    if (chunks.size() <= 1) {
+      chunks.forEach(chunk -> createChunk(texts, chunk, results, today));
+      return;
+    }
+    getAssistant(); // build the proxy while the Ivy context is available
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    for (List<Integer> chunk : chunks) {
+      futures.add(AiExecutor.supplyAsync(() -> {
+        createChunk(texts, chunk, results, today);
+        return null;
+      }));
+    }
+    try {
+      CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+
+  private void createChunk(List<String> texts, List<Integer> chunk, Transaction[] results, LocalDate today) {
+    StringBuilder numbered = new StringBuilder();
+    for (int i = 0; i < chunk.size(); i++) {
+      numbered.append(i + 1).append(". ").append(StringUtils.normalizeSpace(texts.get(chunk.get(i)))).append('\n');
+    }
+
+    List<Transaction> parsed;
+    try {
+      TransactionBatch batch = LlmMetrics.measure(OPERATION_CREATE_TRANSACTIONS,
+          () -> getAssistant().createTransactions(numbered.toString(), chunk.size(), today));
+      parsed = batch == null ? null : batch.getTransactions();
+    } catch (RuntimeException e) {
+      // e.g. an answer that is no valid batch JSON; one bad batch must not fail the whole import
+      parsed = null;
+    }
+    if (parsed == null || parsed.size() != chunk.size()) {
+      // The answer cannot be matched to the messages, ask for each message on its own
+      LlmMetrics.parseFailure(OPERATION_CREATE_TRANSACTIONS);
+      for (int index : chunk) {
+        LlmMetrics.retry(OPERATION_CREATE_TRANSACTIONS);
+        results[index] = createFromMessage(texts.get(index));
+      }
+      return;
+    }
+    for (int i = 0; i < chunk.size(); i++) {
+      results[chunk.get(i)] = parsed.get(i);
+    }
+  }
+
+  /**
+   * Asynchronous variant of {@link #createFromMessage(String)}, executed by the {@link AiExecutor}.
+   * Safe off the request thread, since the proxy is built before submitting and the call itself needs no
+   * Ivy context.
+   *
+   * @param message The user-provided text describing the transaction.
+   * @return A future completed with the parsed Transaction.
+   */
+  public CompletableFuture<Transaction> createFromMessageAsync(String message) {
+    getAssistant(); // build the proxy while the Ivy context is available
+    return AiExecutor.supplyAsync(() -> createFromMessage(message));
+  }
+
+  /**
+   * Asynchronous variant of {@link #createSearchCriteriaFromMessage(String)}, executed by the {@link AiExecutor}.
+   * Like {@link #createFromMessageAsync(String)} it needs no Ivy context once submitted.
+   *
+   * @param message The user-provided text describing the search criteria.
+   * @return A future completed with the parsed TransactionSearchCriteria.
+   */
+  public CompletableFuture<TransactionSearchCriteria> createSearchCriteriaFromMessageAsync(String message) {
+    getAssistant(); // build the proxy while the Ivy context is available
+    return AiExecutor.supplyAsync(() -> createSearchCriteriaFromMessage(message));
+  }
+
+  /**
+   * Cache of parsed search criteria, e.g. to expose its hit, miss and eviction counts.
+   */
+  public static BoundedCache<String, TransactionSearchCriteria> getSearchCriteriaCache() {
+    return SEARCH_CRITERIA_CACHE;
+  }
+
+  private static Transaction toTransaction(TransactionMessageParser.ParseResult parsed) {
+    Transaction transaction = new Transaction();
+    transaction.setAmount(parsed.getAmount());
+    transaction.setType(parsed.isIncome() ? Type.INCOME : Type.EXPENSE);
+    transaction.setCategory(Category.valueOf(parsed.getCategory()));
+    transaction.setDescription(parsed.getDescription());
+    transaction.setDate(parsed.getDate());
+    return transaction;
+  }
+
+  /** Lower-cases, collapses whitespace and drops trailing punctuation so trivial variants share one entry. */
+  private static String normalize(String message) {
+    String normalized = StringUtils.normalizeSpace(StringUtils.defaultString(message)).toLowerCase(Locale.ROOT);
+    return StringUtils.stripEnd(normalized, ".!?");
+  }
+
+  private static ITransactionAssistant getAssistant() {
+    if (assistant == null) {
+      synchronized (TransactionAssistant.class) {
+        if (assistant == null) {
+          assistant = AiServices
+              .builder(ITransactionAssistant.class)
+              .chatModel(OpenAiService.getJsonChatModel())
+              .build();
+        }
+      }
+    }
+    return assistant;
+  }
+
   /**
    * Interface that defines the prompt and expected structure for LangChain4j.
    * LangChain4j uses dynamic proxy to generate code that:
@@ -84,11 +300,27 @@ public class TransactionAssistant {
     @UserMessage("{{message}}")
     public Transaction createTransaction(@V("message") String message);
 
+    @SystemMessage("""
+        You are a helpful financial assistant.
+        Parse each of the following {{count}} numbered messages into a JSON transaction record.
+        Return strictly JSON with no markdown or extra text.
+
+        Today: {{today}}
+
+        RULES:
+        - Return exactly {{count}} transactions, one per message, in the order of the numbers.
+        - Each message describes exactly one transaction, never merge or split messages.
+    """)
+    @UserMessage("{{messages}}")
+    public TransactionBatch createTransactions(@V("messages") String messages, @V("count") int count, @V("today") LocalDate today);
+
     @SystemMessage("""
         You are a helpful financial assistant specialized in parsing search queries.
         Parse the following search message into a JSON search criteria object.
         Return strictly JSON with no markdown or extra text.
 
+        Today: {{today}}
+
         STRICT RULES:
         - Never guess values.
         - A field must only be filled if it is **explicitly stated or can be directly inferred** (e.g., "yesterday" → fromDate and toDate).
@@ -96,6 +328,6 @@ public class TransactionAssistant {
         - Do not assume a category, type, or description unless directly written in the query.
     """)
     @UserMessage("{{message}}")
-    public TransactionSearchCriteria createSearchCriteria(@V("message") String message);
+    public TransactionSearchCriteria createSearchCriteria(@V("message") String message, @V("today") LocalDate today);
   }
 }
\ No newline at end of file
@@ -0,0 +1,185 @@
+package audio;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import ch.ivyteam.ivy.workflow.document.IDocument;
+import ch.ivyteam.ivy.workflow.document.IDocumentService;
+
+/**
+ * Content-addressed storage of recordings in the case documents.
+ * <p>
+ * A recording is stored as {@code audio/<sha-256>.webm}, so the same content is written once per case however often
+ * it is uploaded (retries, double clicks), and concurrent uploads can never clash on a name. Every store adds a
+ * reference, {@link #release(String, String)} removes one; {@link #sweep(Duration, Function)} deletes documents that
+ * were unreferenced for longer than the retention and forgets them, so entries only live as long as their references
+ * plus the retention. The document service of a scope is resolved when the document is deleted, on the sweeping
+ * request, never kept from the request that stored it.
+ * </p>
+ * <p>
+ * Reference counts are kept in memory: after a restart, documents stored earlier are still reused but only swept
+ * once they were referenced and released again. Instances are thread-safe.
+ * </p>
+ */
+public class AudioBlobStore {
+
+  private static final String FOLDER = "audio/";
+  private static final String EXTENSION = ".webm";
+
+  private final Map<String, Blob> blobs = new ConcurrentHashMap<>();
+  private final AtomicLong writes = new AtomicLong();
+  private final AtomicLong reuses = new AtomicLong();
+
+  /**
+   * Stores a recording unless a document with the same content exists, and adds a reference to it.
+   *
+   * @param scope the owner of the documents, e.g. the case id; blobs are only shared within a scope
+   * @param hash SHA-256 of the recording as lower-case hex, see {@link #sha256(Path)}
+   * @param recording the recording
+   * @param documents the documents to store it in
+   * @return path of the document holding the content
+   */
+  String store(String scope, String hash, Path recording, IDocumentService documents) throws IOException {
+    String key = key(scope, hash);
+    while (true) {
+      Blob blob = blobs.computeIfAbsent(key, k -> new Blob(FOLDER + hash + EXTENSION, scope));
+      // Same content uploaded twice at once: the second upload waits and reuses the first one's document
+      synchronized (blob) {
+        if (blob.removed) {
+          // swept while we were waiting, start over with a fresh entry
+          continue;
+        }
+        return store(blob, recording, documents);
+      }
+    }
+  }
+
+  private String store(Blob blob, Path recording, IDocumentService documents) throws IOException {
+    if (!blob.stored) {
+      ch.ivyteam.ivy.workflow.document.Path path = new ch.ivyteam.ivy.workflow.document.Path(blob.path);
+      if (documents.get(path) == null) {
+        IDocument document = documents.add(path);
+        try (InputStream in = Files.newInputStream(recording)) {
+          document.write().withContentFrom(in);
+        }
+        writes.incrementAndGet();
+      } else {
+        reuses.incrementAndGet();
+      }
+      blob.stored = true;
+    } else {
+      reuses.incrementAndGet();
+    }
+    blob.references++;
+    blob.releasedAt = null;
+    return blob.path;
+  }
+
+  /**
+   * Removes a reference added by {@link #store(String, String, Path, IDocumentService)}.
+   */
+  void release(String scope, String hash) {
+    Blob blob = blobs.get(key(scope, hash));
+    if (blob == null) {
+      return;
+    }
+    synchronized (blob) {
+      if (blob.references > 0 && --blob.references == 0) {
+        blob.releasedAt = Instant.now();
+      }
+    }
+  }
+
+  /**
+   * Deletes the documents that had no reference for longer than the retention.
+   *
+   * @param retention how long a document without reference is kept
+   * @param documentsOfScope the document service of a scope, null if the scope and its documents are gone
+   * @return number of deleted documents
+   */
+  int sweep(Duration retention, Function<String, IDocumentService> documentsOfScope) {
+    Instant limit = Instant.now().minus(retention);
+    int deleted = 0;
+    Iterator<Blob> it = blobs.values().iterator();
+    while (it.hasNext()) {
+      Blob blob = it.next();
+      synchronized (blob) {
+        if (blob.references > 0 || blob.releasedAt == null || blob.releasedAt.isAfter(limit)) {
+          continue;
+        }
+        IDocumentService documents = documentsOfScope.apply(blob.scope);
+        IDocument document = documents != null
+            ? documents.get(new ch.ivyteam.ivy.workflow.document.Path(blob.path)) : null;
+        if (document != null) {
+          documents.delete(document);
+          deleted++;
+        }
+        // a store waiting for this blob retries with a new entry
+        blob.removed = true;
+        it.remove();
+      }
+    }
+    return deleted;
+  }
+
+  long getWriteCount() {
+    return writes.get();
+  }
+
+  long getReuseCount() {
+    return reuses.get();
+  }
+
+  private static String key(String scope, String hash) {
+    return scope + "/" + hash;
+  }
+
+  /**
+   * @return SHA-256 of the file as lower-case hex, read as a stream
+   */
+  public static String sha256(Path file) throws IOException {
+    MessageDigest digest = newDigest();
+    byte[] buffer = new byte[64 * 1024];
+    try (InputStream in = Files.newInputStream(file)) {
+      for (int read; (read = in.read(buffer)) > 0;) {
+        digest.update(buffer, 0, read);
+      }
+    }
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  public static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
+    }
+  }
+
+  private static final class Blob {
+    private final String path;
+    private final String scope;
+    private boolean stored;
+    private boolean removed;
+    private int references;
+    /** Since when the blob has no reference; set from the start, so an entry whose store failed is swept as well. */
+    private Instant releasedAt = Instant.now();
+
+    private Blob(String path, String scope) {
+      this.path = path;
+      this.scope = scope;
+    }
+  }
+}
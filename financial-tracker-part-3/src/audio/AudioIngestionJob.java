@@ -0,0 +1,117 @@
+package audio;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Progress of one recording in the {@link AudioIngestionService}.
+ * Updated by a worker and read by status polls, hence all fields are volatile.
+ */
+public class AudioIngestionJob {
+
+  /**
+   * Steps of an ingestion.
+   */
+  public enum Status {
+    QUEUED, STORING, TRANSCRIBING, DONE, FAILED;
+
+    public boolean isFinished() {
+      return this == DONE || this == FAILED;
+    }
+  }
+
+  private final String id;
+  private final String scope;
+  private final String contentHash;
+  private final Instant createdAt = Instant.now();
+  /** Whether the job holds a reference on its stored recording. */
+  private final AtomicBoolean referenced = new AtomicBoolean();
+  private volatile Status status = Status.QUEUED;
+  private volatile String documentPath;
+  private volatile String transcript;
+  private volatile String errorMessage;
+  private volatile Instant finishedAt;
+
+  AudioIngestionJob(String id, String scope, String contentHash) {
+    this.id = id;
+    this.scope = scope;
+    this.contentHash = contentHash;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * @return SHA-256 of the recording as lower-case hex
+   */
+  public String getContentHash() {
+    return contentHash;
+  }
+
+  String getScope() {
+    return scope;
+  }
+
+  public Instant getCreatedAt() {
+    return createdAt;
+  }
+
+  public Status getStatus() {
+    return status;
+  }
+
+  public String getDocumentPath() {
+    return documentPath;
+  }
+
+  public String getTranscript() {
+    return transcript;
+  }
+
+  public String getErrorMessage() {
+    return errorMessage;
+  }
+
+  public Instant getFinishedAt() {
+    return finishedAt;
+  }
+
+  /**
+   * @return true if the job finished before the given instant
+   */
+  boolean finishedBefore(Instant instant) {
+    Instant finished = finishedAt;
+    return finished != null && finished.isBefore(instant);
+  }
+
+  void storing() {
+    status = Status.STORING;
+  }
+
+  void stored(String path) {
+    documentPath = path;
+    referenced.set(true);
+  }
+
+  void transcribing() {
+    status = Status.TRANSCRIBING;
+  }
+
+  /** @return true exactly once if the job held a reference, which the caller then has to release */
+  boolean dropReference() {
+    return referenced.compareAndSet(true, false);
+  }
+
+  void done(String text) {
+    transcript = text;
+    finishedAt = Instant.now();
+    status = Status.DONE;
+  }
+
+  void failed(String message) {
+    errorMessage = message;
+    finishedAt = Instant.now();
+    status = Status.FAILED;
+  }
+}
@@ -0,0 +1,265 @@
+package audio;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+
+import ch.ivyteam.ivy.environment.Ivy;
+import ch.ivyteam.ivy.workflow.ICase;
+import ch.ivyteam.ivy.workflow.IWorkflowContext;
+import ch.ivyteam.ivy.workflow.document.IDocumentService;
+
+/**
+ * Stores and transcribes uploaded recordings in the background.
+ * <p>
+ * Uploads are queued on a bounded queue for a small worker pool, which writes each recording to the case documents
+ * and hands it to the {@link SpeechToTextEngine}. When the queue is full,
+ * {@link #submit(Path, String, String, IDocumentService)} refuses the upload before anything is stored instead of
+ * blocking the request thread, and the client is expected to retry later. Jobs can be polled by id until an hour
+ * after they finished.
+ * </p>
+ * <p>
+ * Recordings are stored by content hash (see {@link AudioBlobStore}): an upload whose content already exists
+ * in the case is not written again. A successful job keeps a reference on its document until its transcript was
+ * delivered ({@link #release(String)}) or the job expired, a failed job drops it right away. Unreferenced documents
+ * are deleted after {@code Audio.Retention.Hours}; the sweep runs on submitting requests, at most every ten minutes,
+ * and looks up the case of each document itself.
+ * </p>
+ * <p>
+ * Workers are not Ivy request threads: the submitting request resolves the document service of its case and the
+ * worker only writes through that service. Neither the worker nor the engine may use {@code Ivy.*} APIs that need
+ * a request context.
+ * </p>
+ */
+public class AudioIngestionService {
+
+  private static final String VAR_WORKERS = "Audio.Ingestion.Workers";
+  private static final String VAR_QUEUE_CAPACITY = "Audio.Ingestion.QueueCapacity";
+  private static final String VAR_RETENTION_HOURS = "Audio.Retention.Hours";
+  private static final Duration SWEEP_INTERVAL = Duration.ofMinutes(10);
+  private static final Duration JOB_TTL = Duration.ofHours(1);
+
+  private static volatile AudioIngestionService instance;
+
+  /** Running jobs, and finished ones for {@link #JOB_TTL}; expired jobs are dropped by polls and the sweep. */
+  private final Map<String, AudioIngestionJob> jobs = new ConcurrentHashMap<>();
+  private final ThreadPoolExecutor executor;
+  private final AudioBlobStore store;
+  private final Duration retention;
+  private volatile Instant nextSweep;
+  private volatile SpeechToTextEngine engine = new StubSpeechToTextEngine();
+
+  public static AudioIngestionService getInstance() {
+    if (instance == null) {
+      synchronized (AudioIngestionService.class) {
+        if (instance == null) {
+          instance = new AudioIngestionService(getIntVar(VAR_WORKERS, 2), getIntVar(VAR_QUEUE_CAPACITY, 20),
+              Duration.ofHours(getIntVar(VAR_RETENTION_HOURS, 24)));
+        }
+      }
+    }
+    return instance;
+  }
+
+  /**
+   * @param workers number of recordings processed at the same time
+   * @param queueCapacity number of recordings that may wait for a worker
+   * @param retention how long a recording without reference is kept
+   */
+  AudioIngestionService(int workers, int queueCapacity, Duration retention) {
+    this(workers, queueCapacity, retention, new AudioBlobStore());
+  }
+
+  AudioIngestionService(int workers, int queueCapacity, Duration retention, AudioBlobStore store) {
+    this.retention = retention;
+    this.store = store;
+    this.nextSweep = Instant.now().plus(SWEEP_INTERVAL);
+    AtomicInteger count = new AtomicInteger();
+    executor = new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueCapacity),
+        runnable -> {
+          Thread thread = new Thread(runnable, "audio-ingest-" + count.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+    executor.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * Replaces the speech-to-text engine, e.g. with a client of a real transcription service.
+   * Jobs already running keep the engine they started with.
+   */
+  public void setSpeechToTextEngine(SpeechToTextEngine engine) {
+    this.engine = engine;
+  }
+
+  /**
+   * Queues a recording for storage and transcription.
+   *
+   * Must be called on the request thread of the case, which resolves the document service the worker writes to.
+   *
+   * @param recording temporary file of the recording; the service deletes it when done, but only if the job was accepted
+   * @param contentHash SHA-256 of the recording as lower-case hex, computed while it was received
+   * @param scope the owner of the documents, e.g. the case id; equal content is only shared within a scope
+   * @param documents the document service of the current case, the worker stores the recording there
+   * @return the queued job, or null if the queue is full and the caller should retry later
+   */
+  public AudioIngestionJob submit(Path recording, String contentHash, String scope, IDocumentService documents) {
+    sweepIfDue();
+    AudioIngestionJob job = new AudioIngestionJob(UUID.randomUUID().toString(), scope, contentHash);
+    SpeechToTextEngine jobEngine = engine;
+    try {
+      executor.execute(() -> process(job, recording, documents, jobEngine));
+    } catch (RejectedExecutionException e) {
+      // Nothing was stored yet, the caller keeps the recording
+      return null;
+    }
+    jobs.put(job.getId(), job);
+    return job;
+  }
+
+  /**
+   * Drops the reference of a job on its stored recording, e.g. when the transcript was delivered or discarded.
+   * The document is deleted by a later sweep if no other upload references it. Releasing twice has no effect.
+   *
+   * @return true if the job held a reference
+   */
+  public boolean release(String jobId) {
+    AudioIngestionJob job = getJob(jobId);
+    if (job == null || !job.dropReference()) {
+      return false;
+    }
+    store.release(job.getScope(), job.getContentHash());
+    return true;
+  }
+
+  /**
+   * @return number of recordings written to the documents
+   */
+  public long getStoredCount() {
+    return store.getWriteCount();
+  }
+
+  /**
+   * @return number of uploads that reused an existing document instead of writing it again
+   */
+  public long getDeduplicatedCount() {
+    return store.getReuseCount();
+  }
+
+  /**
+   * @return the job with the given id, null if it is unknown or finished more than an hour ago
+   */
+  public AudioIngestionJob getJob(String id) {
+    if (StringUtils.isBlank(id)) {
+      return null;
+    }
+    AudioIngestionJob job = jobs.get(id);
+    if (job != null && job.finishedBefore(Instant.now().minus(JOB_TTL))) {
+      expire(job);
+      return null;
+    }
+    return job;
+  }
+
+  /**
+   * @return number of recordings waiting for a worker
+   */
+  public int getQueueLength() {
+    return executor.getQueue().size();
+  }
+
+  /** Runs the retention sweep on the calling request thread, at most once per {@link #SWEEP_INTERVAL}. */
+  private void sweepIfDue() {
+    Instant now = Instant.now();
+    Instant due = nextSweep;
+    if (now.isBefore(due)) {
+      return;
+    }
+    synchronized (this) {
+      if (nextSweep != due) {
+        return; // another request sweeps
+      }
+      nextSweep = now.plus(SWEEP_INTERVAL);
+    }
+    for (AudioIngestionJob job : jobs.values()) {
+      if (job.finishedBefore(now.minus(JOB_TTL))) {
+        expire(job);
+      }
+    }
+    try {
+      int deleted = store.sweep(retention, AudioIngestionService::documentsOf);
+      if (deleted > 0) {
+        Ivy.log().info("Deleted " + deleted + " unreferenced audio recording(s)");
+      }
+    } catch (Exception e) {
+      Ivy.log().warn("Audio retention sweep failed", e);
+    }
+  }
+
+  /** Forgets an expired job; nobody can fetch its transcript anymore, so its recording is released. */
+  private void expire(AudioIngestionJob job) {
+    if (jobs.remove(job.getId(), job) && job.dropReference()) {
+      store.release(job.getScope(), job.getContentHash());
+    }
+  }
+
+  /** Documents of the case a scope stands for, null if there is no such case anymore. */
+  private static IDocumentService documentsOf(String scope) {
+    long caseId = NumberUtils.toLong(scope, -1);
+    ICase wfCase = caseId >= 0 ? IWorkflowContext.current().findCase(caseId) : null;
+    return wfCase != null ? wfCase.documents() : null;
+  }
+
+  private void process(AudioIngestionJob job, Path recording, IDocumentService documents, SpeechToTextEngine engine) {
+    try {
+      job.storing();
+      job.stored(store.store(job.getScope(), job.getContentHash(), recording, documents));
+    } catch (IOException | RuntimeException e) {
+      job.failed(errorMessage(e));
+      delete(recording);
+      return;
+    }
+    try {
+      job.transcribing();
+      job.done(engine.transcribe(recording));
+    } catch (Exception e) {
+      job.failed(errorMessage(e));
+      // nothing to keep the recording for, the client uploads it again
+      if (job.dropReference()) {
+        store.release(job.getScope(), job.getContentHash());
+      }
+    } finally {
+      delete(recording);
+    }
+  }
+
+  private static String errorMessage(Exception e) {
+    return StringUtils.defaultIfBlank(e.getMessage(), e.getClass().getSimpleName());
+  }
+
+  private static void delete(Path recording) {
+    try {
+      Files.deleteIfExists(recording);
+    } catch (IOException e) {
+      // the temp directory is cleaned up by the OS eventually
+    }
+  }
+
+  private static int getIntVar(String name, int defaultValue) {
+    int value = NumberUtils.toInt(Ivy.var().get(name), defaultValue);
+    return value > 0 ? value : defaultValue;
+  }
+}
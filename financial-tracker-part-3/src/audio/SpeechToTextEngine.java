@@ -0,0 +1,18 @@
+package audio;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Turns a recording into text. Implementations are called by the workers of the
+ * {@link AudioIngestionService} and must be thread-safe.
+ */
+public interface SpeechToTextEngine {
+
+  /**
+   * @param audio the recording (webm), readable until the method returns
+   * @return the transcript, empty if nothing was recognized
+   * @throws IOException if the recording cannot be read or the engine fails
+   */
+  String transcribe(Path audio) throws IOException;
+}
@@ -0,0 +1,33 @@
+package audio;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Local stand-in for a real speech-to-text service, e.g. for development and tests.
+ * Answers every recording with the configured transcript, or with a note about its size if there is none.
+ */
+public class StubSpeechToTextEngine implements SpeechToTextEngine {
+
+  private final String transcript;
+
+  public StubSpeechToTextEngine() {
+    this(null);
+  }
+
+  /**
+   * @param transcript the text returned for every recording, null to describe the recording instead
+   */
+  public StubSpeechToTextEngine(String transcript) {
+    this.transcript = transcript;
+  }
+
+  @Override
+  public String transcribe(Path audio) throws IOException {
+    if (transcript != null) {
+      return transcript;
+    }
+    return "Recording of " + Files.size(audio) + " bytes";
+  }
+}
@@ -0,0 +1,172 @@
+package beans;
+
+import java.io.Serializable;
+
+import javax.faces.bean.ManagedBean;
+import javax.faces.bean.ViewScoped;
+
+import org.apache.commons.lang3.StringUtils;
+
+import agent.TransactionAgent;
+import agent.TransactionAgentListener;
+import entity.TransactionAgentResponse;
+
+/**
+ * Runs the {@link TransactionAgent} in streaming mode for the Transactions dialog.
+ * <p>
+ * The dialog prepares a run with {@link #prepare(String)} and executes it with {@link #run()} in a separate,
+ * asynchronous request that stays open until the run is finished, since the agent's tools need the request's
+ * Ivy context. Meanwhile it polls {@link #getOutput()} and {@link #getProgress()} while {@link #isStreaming()}.
+ * Once the run is {@link #isCompleted() completed} it hands the final response to the dialog logic via
+ * {@link #consumeResponse()}.
+ * </p>
+ */
+@ManagedBean(name = "agentStreamBean")
+@ViewScoped
+public class AgentStreamBean implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  /** State of the current run; not serialized, a restored view simply has no run in progress. */
+  private transient volatile AgentStream stream;
+
+  /**
+   * Prepares a streamed agent run, so that the dialog starts polling. A blank message completes
+   * immediately without a response.
+   *
+   * @param message the user's message
+   */
+  public void prepare(String message) {
+    AgentStream newStream = new AgentStream(message);
+    stream = newStream;
+    if (StringUtils.isBlank(message)) {
+      newStream.onComplete(null);
+      return;
+    }
+    newStream.onProgress("Thinking…");
+  }
+
+  /**
+   * Executes the prepared run on the current request thread and returns once it is finished.
+   * Does nothing if there is no prepared run or it was already started.
+   */
+  public void run() {
+    AgentStream current = stream;
+    if (current == null || !current.start()) {
+      return;
+    }
+    try {
+      new TransactionAgent().streamTool(current.message, current);
+    } catch (RuntimeException e) {
+      current.onError(e);
+    }
+  }
+
+  public boolean isStreaming() {
+    AgentStream current = stream;
+    return current != null && !current.isDone();
+  }
+
+  /**
+   * @return true if the run is finished but its response was not consumed yet
+   */
+  public boolean isCompleted() {
+    AgentStream current = stream;
+    return current != null && current.isDone() && !current.isConsumed();
+  }
+
+  public String getOutput() {
+    AgentStream current = stream;
+    return current == null ? "" : current.getOutput();
+  }
+
+  public String getProgress() {
+    AgentStream current = stream;
+    return current == null ? "" : current.getProgress();
+  }
+
+  /**
+   * Hands out the final response of the finished run once.
+   *
+   * @return the agent's response, a response carrying the error message if the run failed,
+   *         or null if there is nothing to apply
+   */
+  public TransactionAgentResponse consumeResponse() {
+    AgentStream current = stream;
+    if (current == null || !current.isDone() || current.isConsumed()) {
+      return null;
+    }
+    return current.consume();
+  }
+
+  private static final class AgentStream implements TransactionAgentListener {
+
+    private final String message;
+    private final StringBuilder output = new StringBuilder();
+    private String progress = "";
+    private boolean started;
+    private TransactionAgentResponse response;
+    private boolean done;
+    private boolean consumed;
+
+    private AgentStream(String message) {
+      this.message = message;
+    }
+
+    /** @return true if the run was not started before */
+    private synchronized boolean start() {
+      if (started || done) {
+        return false;
+      }
+      started = true;
+      return true;
+    }
+
+    @Override
+    public synchronized void onPartialResponse(String text) {
+      output.append(text);
+    }
+
+    @Override
+    public synchronized void onProgress(String event) {
+      progress = event;
+    }
+
+    @Override
+    public synchronized void onComplete(TransactionAgentResponse agentResponse) {
+      response = agentResponse;
+      progress = "";
+      done = true;
+    }
+
+    @Override
+    public synchronized void onError(Throwable error) {
+      response = TransactionAgentResponse.builder()
+          .errorMessage(StringUtils.defaultIfBlank(error.getMessage(), error.getClass().getSimpleName()))
+          .build();
+      progress = "";
+      done = true;
+    }
+
+    private synchronized String getOutput() {
+      return output.toString();
+    }
+
+    private synchronized String getProgress() {
+      return progress;
+    }
+
+    private synchronized boolean isDone() {
+      return done;
+    }
+
+    private synchronized boolean isConsumed() {
+      return consumed;
+    }
+
+    private synchronized TransactionAgentResponse consume() {
+      consumed = true;
+      return response;
+    }
+  }
+}
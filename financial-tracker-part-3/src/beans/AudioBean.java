@@ -1,85 +1,228 @@
 package beans;
 
-import java.io.ByteArrayInputStream;
-import java.io.InputStream;
+import java.io.IOException;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
 import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Map;
 
+import javax.annotation.PreDestroy;
 import javax.faces.bean.ManagedBean;
+import javax.faces.bean.ViewScoped;
+import javax.faces.context.FacesContext;
 
+import org.apache.commons.lang3.math.NumberUtils;
+import org.primefaces.PrimeFaces;
+
+import audio.AudioBlobStore;
+import audio.AudioIngestionJob;
+import audio.AudioIngestionService;
 import ch.ivyteam.ivy.environment.Ivy;
 import ch.ivyteam.ivy.workflow.IWorkflowContext;
-import ch.ivyteam.ivy.workflow.document.IDocumentService;
-import ch.ivyteam.ivy.workflow.document.IDocument;
-import ch.ivyteam.ivy.workflow.document.Path;
 
+/**
+ * Receives a recording in chunks and hands it to the {@link AudioIngestionService}.
+ * <p>
+ * The browser calls {@link #startUpload()}, then {@link #uploadChunk()} for every piece of the recording
+ * (each piece Base64 encoded on its own) and finally {@link #saveAudio()}. Every chunk is decoded and
+ * appended to a temporary file right away, so the memory needed per upload is bounded by the chunk size,
+ * not by the length of the recording. The content hash used to deduplicate recordings is computed on the
+ * same pass. Storage and transcription run in the background, the browser follows
+ * them with {@link #pollStatus()}.
+ * </p>
+ */
 @ManagedBean(name="audioBean")
+@ViewScoped
 public class AudioBean implements Serializable {
-    private static final long serialVersionUID = 1L;
-
-    private String audioBase64;
-
-    public String getAudioBase64() {
-        return audioBase64;
-    }
-
-    public void setAudioBase64(String audioBase64) {
-        this.audioBase64 = audioBase64;
+    private static final long serialVersionUID = 2L;
+
+    /** Upper bound of a recording, protects the server's disk from endless uploads. */
+    private static final long MAX_AUDIO_BYTES = 100L * 1024 * 1024;
+
+    /** Temporary file of the running upload, null if there is none. */
+    private String tempFile;
+    private int nextChunk;
+    private long receivedBytes;
+    /** SHA-256 over the chunks received so far; lost if the view is serialized, then the file is hashed again. */
+    private transient MessageDigest digest;
+
+    /**
+     * Starts a new upload, discarding an unfinished one.
+     */
+    public void startUpload() {
+        discardUpload();
+        try {
+            tempFile = Files.createTempFile("audio-", ".webm").toString();
+        } catch (IOException e) {
+            Ivy.log().error("Could not create temporary audio file", e);
+            reply(false);
+            return;
+        }
+        nextChunk = 0;
+        receivedBytes = 0;
+        digest = AudioBlobStore.newDigest();
+        reply(true);
     }
 
-    public void saveAudio() {
-        if (audioBase64 == null || audioBase64.isEmpty()) {
-        	Ivy.log().info("No audio data to save.");
-            //Ivy("⚠️ No audio data to save.");
+    /**
+     * Appends one chunk, passed as request parameters {@code index} and {@code chunk} (Base64).
+     * Chunks have to arrive in order; a missing or repeated chunk fails the upload.
+     */
+    public void uploadChunk() {
+        Map<String, String> params = FacesContext.getCurrentInstance().getExternalContext().getRequestParameterMap();
+        int index = NumberUtils.toInt(params.get("index"), -1);
+        String chunk = params.get("chunk");
+        if (tempFile == null || chunk == null || index != nextChunk) {
+            Ivy.log().error("Unexpected audio chunk " + index + ", expected " + nextChunk);
+            discardUpload();
+            reply(false);
             return;
         }
 
-        // Entferne data-URL-Prefix, falls vorhanden
-        String base64Data = audioBase64;
-        if (base64Data.contains(",")) {
-            base64Data = base64Data.substring(base64Data.indexOf(",") + 1);
+        try (FileChannel channel = FileChannel.open(Paths.get(tempFile), StandardOpenOption.APPEND)) {
+            ByteBuffer bytes = ByteBuffer.wrap(Base64.getDecoder().decode(chunk));
+            receivedBytes += bytes.remaining();
+            if (receivedBytes > MAX_AUDIO_BYTES) {
+                throw new IOException("Recording exceeds " + MAX_AUDIO_BYTES + " bytes");
+            }
+            if (digest != null) {
+                digest.update(bytes.duplicate());
+            }
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            nextChunk++;
+            reply(true);
+        } catch (IOException | IllegalArgumentException e) {
+            Ivy.log().error("Could not store audio chunk " + index, e);
+            discardUpload();
+            reply(false);
         }
+    }
 
-        byte[] audioBytes;
-        try {
-            audioBytes = Base64.getDecoder().decode(base64Data);
-            Ivy.log().info("Audio Bytes: " + audioBytes.toString());
-        } catch (IllegalArgumentException e) {
-        	Ivy.log().error("Custom Error Msg.: " + e.toString());
-            //e.printStackTrace();
+    /**
+     * Hands the uploaded recording to the {@link AudioIngestionService}, which stores and transcribes it
+     * in the background. Replies with the {@code jobId} to poll, or with {@code busy} if the queue is full.
+     * Unless the job took the upload over, it is discarded, so the client uploads the recording again to retry.
+     */
+    public void saveAudio() {
+        if (tempFile == null || receivedBytes == 0) {
+            Ivy.log().info("No audio data to save.");
+            discardUpload();
+            reply(false);
             return;
         }
 
         // Workflow-Kontext holen
         IWorkflowContext wf = IWorkflowContext.current();
         if (wf == null) {
-        	Ivy.log().info("wf == null");
-            // ggf. Fehlerbehandlung, wenn außerhalb des Workflow-Kontexts
+            Ivy.log().info("wf == null");
+            discardUpload();
             throw new IllegalStateException("Kein Workflow-Kontext verfügbar.");
         }
 
-        IDocumentService docService = wf.documents();
+        String hash;
+        try {
+            hash = contentHash();
+        } catch (IOException e) {
+            Ivy.log().error("Could not hash audio file " + tempFile, e);
+            discardUpload();
+            reply(false);
+            return;
+        }
+        String scope = String.valueOf(Ivy.wfCase().getId());
+        AudioIngestionJob job = AudioIngestionService.getInstance().submit(Paths.get(tempFile), hash, scope, wf.documents());
+        if (job == null) {
+            Ivy.log().info("Audio ingestion queue is full, asking the client to retry");
+            discardUpload();
+            PrimeFaces.current().ajax().addCallbackParam("busy", true);
+            reply(false);
+            return;
+        }
+
+        // The job owns the temporary file from now on
+        tempFile = null;
+        nextChunk = 0;
+        receivedBytes = 0;
+        digest = null;
+        PrimeFaces.current().ajax().addCallbackParam("jobId", job.getId());
+        reply(true);
+    }
 
-        // Wähle einen Pfad für das Dokument – z. B. „audio/aufnahmeXYZ.webm“
-        // Du könntest evtl. einen Zeitstempel oder UUID verwenden, um Konflikte zu vermeiden
-        String filename = "aufnahme_" + System.currentTimeMillis() + ".webm";
-        String documentPath = "audio/" + filename;
-        Path path = new Path(documentPath);
+    /**
+     * Replies with the progress of the job given as request parameter {@code jobId}:
+     * {@code status}, and {@code transcript} or {@code error} once it is finished. Delivering the transcript
+     * releases the job's recording.
+     */
+    public void pollStatus() {
+        String jobId = FacesContext.getCurrentInstance().getExternalContext().getRequestParameterMap().get("jobId");
+        AudioIngestionJob job = AudioIngestionService.getInstance().getJob(jobId);
+        if (job == null) {
+            reply(false);
+            return;
+        }
+        PrimeFaces.current().ajax().addCallbackParam("status", job.getStatus().name());
+        PrimeFaces.current().ajax().addCallbackParam("finished", job.getStatus().isFinished());
+        if (job.getTranscript() != null) {
+            PrimeFaces.current().ajax().addCallbackParam("transcript", job.getTranscript());
+            // The client has the transcript, the recording only stays for the retention period
+            AudioIngestionService.getInstance().release(jobId);
+        }
+        if (job.getErrorMessage() != null) {
+            PrimeFaces.current().ajax().addCallbackParam("error", job.getErrorMessage());
+        }
+        reply(true);
+    }
 
-        try {
-            // Document hinzufügen
-            IDocument doc = docService.add(path);
+    /**
+     * Finishes the hash computed while receiving, or hashes the file if the digest was lost.
+     */
+    private String contentHash() throws IOException {
+        String hash = digest != null
+                ? HexFormat.of().formatHex(digest.digest())
+                : AudioBlobStore.sha256(Paths.get(tempFile));
+        digest = null;
+        return hash;
+    }
 
-            // Inhalt schreiben
-            try (InputStream in = new ByteArrayInputStream(audioBytes)) {
-                doc.write().withContentFrom(in);
+    /**
+     * Deletes the file of an upload that was never handed to a job, e.g. when the view expires after the user left.
+     * Runs without a request, so failures cannot be logged through Ivy.
+     */
+    @PreDestroy
+    public void destroy() {
+        if (tempFile != null) {
+            try {
+                Files.deleteIfExists(Paths.get(tempFile));
+            } catch (IOException e) {
+                // best effort, the file lives in the temp directory
             }
+            tempFile = null;
+        }
+    }
 
-            Ivy.log().info("Audio als Dokument gespeichert: " + documentPath);
-        } catch (Exception e) {
-            // z. B. Persistenz-Fehler oder Schreibrechte fehlen
-        	Ivy.log().error("Custom Error Msg.: " + e.toString());
-            //e.printStackTrace();
+    private void discardUpload() {
+        if (tempFile != null) {
+            try {
+                Files.deleteIfExists(Paths.get(tempFile));
+            } catch (IOException e) {
+                Ivy.log().warn("Could not delete temporary audio file " + tempFile, e);
+            }
         }
+        tempFile = null;
+        nextChunk = 0;
+        receivedBytes = 0;
+        digest = null;
+    }
+
+    /** Tells the recorder script whether to continue with the next chunk. */
+    private static void reply(boolean ok) {
+        PrimeFaces.current().ajax().addCallbackParam("ok", ok);
     }
 }
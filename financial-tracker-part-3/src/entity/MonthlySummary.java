@@ -0,0 +1,91 @@
+package entity;
+
+import java.io.Serializable;
+
+/**
+ * Materialized count and total of the transactions of one month, type and category.
+ * Maintained by the repository on every write so that overviews need not scan all transactions.
+ */
+public class MonthlySummary implements Serializable {
+
+  private static final long serialVersionUID = 5276046195734201338L;
+
+  private String id;
+
+  /** Unique key of the summary: month, type and category, e.g. "2025-03|EXPENSE|FOOD". */
+  private String key;
+
+  /** The month in ISO format, e.g. "2025-03". */
+  private String month;
+
+  /** The month as a searchable number, e.g. 202503. */
+  private int period;
+  private Transaction.Type type;
+  private Transaction.Category category;
+  private long count;
+  private double total;
+
+  public String getId() {
+      return id;
+  }
+
+  public void setId(String id) {
+      this.id = id;
+  }
+
+  public String getKey() {
+      return key;
+  }
+
+  public void setKey(String key) {
+      this.key = key;
+  }
+
+  public String getMonth() {
+      return month;
+  }
+
+  public void setMonth(String month) {
+      this.month = month;
+  }
+
+  public int getPeriod() {
+      return period;
+  }
+
+  public void setPeriod(int period) {
+      this.period = period;
+  }
+
+  public Transaction.Type getType() {
+      return type;
+  }
+
+  public void setType(Transaction.Type type) {
+      this.type = type;
+  }
+
+  public Transaction.Category getCategory() {
+      return category;
+  }
+
+  public void setCategory(Transaction.Category category) {
+      this.category = category;
+  }
+
+  public long getCount() {
+      return count;
+  }
+
+  public void setCount(long count) {
+      this.count = count;
+  }
+
+  public double getTotal() {
+      return total;
+  }
+
+  public void setTotal(double total) {
+      this.total = total;
+  }
+}
@@ -53,6 +53,8 @@ public class Transaction implements Serializable {
   private LocalDate date;
   @Description("ID of the transaction. NEVER change this field")
   private String id;
+  @Description("Version of the transaction, increased by every update. NEVER change this field")
+  private long version;
 
   public double getAmount() {
       return amount;
@@ -100,4 +102,12 @@ public class Transaction implements Serializable {
   public void setId(String id) {
     this.id = id;
   }
+
+  public long getVersion() {
+    return version;
+  }
+
+  public void setVersion(long version) {
+    this.version = version;
+  }
 }
\ No newline at end of file
@@ -18,9 +18,9 @@ public class TransactionAgentResponse {
   }
   /**
    * The type of action the agent intends to perform.
-   * Possible values: INSERT, SEARCH, UPDATE, DELETE.
+   * Possible values: INSERT, SEARCH, UPDATE, DELETE, AGGREGATE.
    */
-  @Description("Indicates the action requested by the user: INSERT, SEARCH, UPDATE, or DELETE.")
+  @Description("Indicates the action requested by the user: INSERT, SEARCH, UPDATE, DELETE, or AGGREGATE for totals.")
   private TransactionAction action;
 
   /**
@@ -36,6 +36,25 @@ public class TransactionAgentResponse {
   @Description("List of transactions returned for a search request; empty or null for non-search actions.")
   private List<Transaction> transactions;
 
+  /**
+   * Totals of the matching transactions, per group if requested.
+   * Used when the user asks for sums, counts or averages instead of single transactions.
+   */
+  @Description("Aggregated amounts (count, sum, average, min, max) per group for a totals request; null otherwise.")
+  private List<TransactionAggregate> aggregates;
+
+  /**
+   * Whether a limited search left out further matching transactions.
+   */
+  @Description("For a search: true if more transactions match than were returned because of the requested limit; null otherwise.")
+  private Boolean hasMore;
+
+  /**
+   * Number of transactions matching the search, including those left out by the limit.
+   */
+  @Description("For a search: number of matching transactions, including those not returned; null otherwise.")
+  private Long totalCount;
+
   /**
    * Error information in case the agent cannot process the request successfully.
    */
@@ -68,6 +87,30 @@ public class TransactionAgentResponse {
       this.transactions = transactions;
   }
 
+  public List<TransactionAggregate> getAggregates() {
+      return aggregates;
+  }
+
+  public void setAggregates(List<TransactionAggregate> aggregates) {
+      this.aggregates = aggregates;
+  }
+
+  public Boolean getHasMore() {
+      return hasMore;
+  }
+
+  public void setHasMore(Boolean hasMore) {
+      this.hasMore = hasMore;
+  }
+
+  public Long getTotalCount() {
+      return totalCount;
+  }
+
+  public void setTotalCount(Long totalCount) {
+      this.totalCount = totalCount;
+  }
+
   public String getErrorMessage() {
       return errorMessage;
   }
@@ -80,6 +123,9 @@ public class TransactionAgentResponse {
     private TransactionAction action;
     private Transaction transaction;
     private List<Transaction> transactions;
+    private List<TransactionAggregate> aggregates;
+    private Boolean hasMore;
+    private Long totalCount;
     private String errorMessage;
     
     public Builder() {}
@@ -99,6 +145,21 @@ public class TransactionAgentResponse {
       return this;
     }
     
+    public Builder aggregates(List<TransactionAggregate> aggregates) {
+      this.aggregates = aggregates;
+      return this;
+    }
+
+    public Builder hasMore(Boolean hasMore) {
+      this.hasMore = hasMore;
+      return this;
+    }
+
+    public Builder totalCount(Long totalCount) {
+      this.totalCount = totalCount;
+      return this;
+    }
+
     public Builder errorMessage(String errorMessage) {
       this.errorMessage = errorMessage;
       return this;
@@ -109,6 +170,9 @@ public class TransactionAgentResponse {
       response.setAction(action);
       response.setTransaction(transaction);
       response.setTransactions(transactions);
+      response.setAggregates(aggregates);
+      response.setHasMore(hasMore);
+      response.setTotalCount(totalCount);
       response.setErrorMessage(errorMessage);
       return response;
     }
@@ -0,0 +1,99 @@
+package entity;
+
+import dev.langchain4j.internal.Json;
+import dev.langchain4j.model.output.structured.Description;
+
+/**
+ * Count, sum, average, minimum and maximum of the amounts of one group of transactions.
+ */
+public class TransactionAggregate {
+
+    /**
+     * How transactions are grouped before aggregating.
+     */
+    public enum GroupBy {
+        NONE, CATEGORY, TYPE, DAY, WEEK, MONTH
+    }
+
+    @Description("The group: a category or type name, a date (YYYY-MM-DD) for days, the Monday of a week for weeks, YYYY-MM for months, or ALL if not grouped")
+    private String group;
+
+    @Description("Number of transactions in the group")
+    private long count;
+
+    @Description("Sum of the amounts")
+    private double sum;
+
+    @Description("Average amount")
+    private double average;
+
+    @Description("Smallest amount")
+    private double min;
+
+    @Description("Largest amount")
+    private double max;
+
+    public TransactionAggregate() {}
+
+    public TransactionAggregate(String group, long count, double sum, double min, double max) {
+        this.group = group;
+        this.count = count;
+        this.sum = sum;
+        this.average = count == 0 ? 0 : sum / count;
+        this.min = min;
+        this.max = max;
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    public void setGroup(String group) {
+        this.group = group;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    public void setSum(double sum) {
+        this.sum = sum;
+    }
+
+    public double getAverage() {
+        return average;
+    }
+
+    public void setAverage(double average) {
+        this.average = average;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public void setMin(double min) {
+        this.min = min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public void setMax(double max) {
+        this.max = max;
+    }
+
+    @Override
+    public String toString() {
+      return Json.toJson(this);
+    }
+}
@@ -0,0 +1,23 @@
+package entity;
+
+import java.util.List;
+
+import dev.langchain4j.model.output.structured.Description;
+
+/**
+ * Wrapper for the structured output of a batch of transaction messages,
+ * since the model has to answer with a single JSON object.
+ */
+public class TransactionBatch {
+
+  @Description("One transaction per input message, in the same order as the numbered messages")
+  private List<Transaction> transactions;
+
+  public List<Transaction> getTransactions() {
+    return transactions;
+  }
+
+  public void setTransactions(List<Transaction> transactions) {
+    this.transactions = transactions;
+  }
+}
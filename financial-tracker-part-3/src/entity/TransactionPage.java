@@ -0,0 +1,87 @@
+package entity;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * One page of transactions returned by a paged search.
+ * <p>
+ * To fetch the next page with keyset paging, copy {@link #getNextAfterDate()} and {@link #getNextAfterId()}
+ * into the search criteria's cursor fields; this stays fast and stable even when rows are added meanwhile.
+ * </p>
+ */
+public class TransactionPage {
+
+  private List<Transaction> transactions;
+  private int offset;
+  private int limit;
+  private long totalCount;
+  private boolean hasMore;
+  private LocalDate nextAfterDate;
+  private String nextAfterId;
+
+  public List<Transaction> getTransactions() {
+    return transactions;
+  }
+
+  public void setTransactions(List<Transaction> transactions) {
+    this.transactions = transactions;
+  }
+
+  public int getOffset() {
+    return offset;
+  }
+
+  public void setOffset(int offset) {
+    this.offset = offset;
+  }
+
+  public int getLimit() {
+    return limit;
+  }
+
+  public void setLimit(int limit) {
+    this.limit = limit;
+  }
+
+  /**
+   * @return number of transactions matching the filters, for keyset pages counted from the cursor's day on
+   */
+  public long getTotalCount() {
+    return totalCount;
+  }
+
+  public void setTotalCount(long totalCount) {
+    this.totalCount = totalCount;
+  }
+
+  public boolean isHasMore() {
+    return hasMore;
+  }
+
+  public void setHasMore(boolean hasMore) {
+    this.hasMore = hasMore;
+  }
+
+  /**
+   * @return date of the last transaction on this page, null if there is no next page
+   */
+  public LocalDate getNextAfterDate() {
+    return nextAfterDate;
+  }
+
+  public void setNextAfterDate(LocalDate nextAfterDate) {
+    this.nextAfterDate = nextAfterDate;
+  }
+
+  /**
+   * @return id of the last transaction on this page, null if there is no next page
+   */
+  public String getNextAfterId() {
+    return nextAfterId;
+  }
+
+  public void setNextAfterId(String nextAfterId) {
+    this.nextAfterId = nextAfterId;
+  }
+}
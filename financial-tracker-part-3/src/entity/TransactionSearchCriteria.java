@@ -14,6 +14,21 @@ import dev.langchain4j.model.output.structured.Description;
  */
 public class TransactionSearchCriteria {
 
+    /**
+     * Order of the search results.
+     */
+    public enum SortOrder {
+        DATE_DESC, DATE_ASC, AMOUNT_DESC, AMOUNT_ASC;
+
+        public boolean isByDate() {
+            return this == DATE_DESC || this == DATE_ASC;
+        }
+
+        public boolean isAscending() {
+            return this == DATE_ASC || this == AMOUNT_ASC;
+        }
+    }
+
     @Description("Minimum amount for the transaction search (inclusive). Leave null if no minimum amount filter is needed.")
     private Double minAmount;
 
@@ -35,6 +50,21 @@ public class TransactionSearchCriteria {
     @Description("End date for the search range (inclusive). Format: YYYY-MM-DD. Leave null if no end date filter is needed.")
     private LocalDate toDate;
 
+    @Description("Order of the results, e.g. AMOUNT_DESC for 'biggest expenses'. Leave null for newest first.")
+    private SortOrder sortOrder;
+
+    @Description("Maximum number of results, only if the user explicitly asks for a number of transactions (e.g. 'last 5'). Leave null otherwise.")
+    private Integer limit;
+
+    @Description("Number of results to skip. Leave null.")
+    private Integer offset;
+
+    @Description("Paging cursor: date of the last transaction of the previous page. Always leave null.")
+    private LocalDate afterDate;
+
+    @Description("Paging cursor: id of the last transaction of the previous page. Always leave null.")
+    private String afterId;
+
     // Default constructor
     public TransactionSearchCriteria() {}
 
@@ -95,6 +125,67 @@ public class TransactionSearchCriteria {
         this.toDate = toDate;
     }
 
+    public SortOrder getSortOrder() {
+        return sortOrder;
+    }
+
+    public void setSortOrder(SortOrder sortOrder) {
+        this.sortOrder = sortOrder;
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public void setLimit(Integer limit) {
+        this.limit = limit;
+    }
+
+    public Integer getOffset() {
+        return offset;
+    }
+
+    public void setOffset(Integer offset) {
+        this.offset = offset;
+    }
+
+    public LocalDate getAfterDate() {
+        return afterDate;
+    }
+
+    public void setAfterDate(LocalDate afterDate) {
+        this.afterDate = afterDate;
+    }
+
+    public String getAfterId() {
+        return afterId;
+    }
+
+    public void setAfterId(String afterId) {
+        this.afterId = afterId;
+    }
+
+    /**
+     * Creates an independent copy of this search criteria.
+     * @return a new instance with the same filter values
+     */
+    public TransactionSearchCriteria copy() {
+        TransactionSearchCriteria copy = new TransactionSearchCriteria();
+        copy.setMinAmount(minAmount);
+        copy.setMaxAmount(maxAmount);
+        copy.setType(type);
+        copy.setCategory(category);
+        copy.setDescriptionContains(descriptionContains);
+        copy.setFromDate(fromDate);
+        copy.setToDate(toDate);
+        copy.setSortOrder(sortOrder);
+        copy.setLimit(limit);
+        copy.setOffset(offset);
+        copy.setAfterDate(afterDate);
+        copy.setAfterId(afterId);
+        return copy;
+    }
+
     /**
      * Checks if this search criteria has any filters set.
      * @return true if at least one search criterion is specified, false otherwise
@@ -104,11 +195,31 @@ public class TransactionSearchCriteria {
                maxAmount != null || 
                type != null || 
                category != null || 
-               StringUtils.isBlank(descriptionContains) ||
+               StringUtils.isNotBlank(descriptionContains) ||
                fromDate != null || 
                toDate != null;
     }
 
+    /**
+     * Checks if this search criteria asks for a specific page or order of the results.
+     * @return true if sort order, limit, offset or a paging cursor is specified
+     */
+    public boolean hasPaging() {
+        return sortOrder != null ||
+               limit != null ||
+               offset != null ||
+               afterDate != null ||
+               afterId != null;
+    }
+
+    /**
+     * Checks if this search criteria continues after a previous page (keyset paging).
+     * @return true if both cursor fields are set
+     */
+    public boolean hasCursor() {
+        return afterDate != null && StringUtils.isNotBlank(afterId);
+    }
+
     @Override
     public String toString() {
       return this == null ? "" : Json.toJson(this);
@@ -3,17 +3,20 @@ package enums;
 import entity.Option;
 
 public enum TransactionAction {
-  INSERT("insert", "the message is about insert or create a transaction"),
-  SEARCH("search", "the message is related to search transaction by some criteria"),
-  UPDATE("clear", "the message is about update a transaction"),
-  DELETE("delete", "the message is about delete a transaction");
+  INSERT("insert", "the message is about insert or create a transaction", false),
+  SEARCH("search", "the message is related to search transaction by some criteria", false),
+  UPDATE("clear", "the message is about update a transaction", true),
+  DELETE("delete", "the message is about delete a transaction", true),
+  AGGREGATE("aggregate", "the message asks for totals, counts or averages of transactions", false);
 
   private String id;
   private String condition;
+  private boolean destructive;
   
-  private TransactionAction(String id, String condition) {
+  private TransactionAction(String id, String condition, boolean destructive) {
     this.id = id;
     this.condition = condition;
+    this.destructive = destructive;
   }
   
   public String getId() {
@@ -35,6 +38,7 @@ public enum TransactionAction {
     Option newOption = new Option();
     newOption.setId(id);
     newOption.setCondition(condition);
+    newOption.setDestructive(destructive);
     return newOption;
   }
 }
@@ -0,0 +1,177 @@
+package repo;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Inverted trigram index over transaction descriptions.
+ * <p>
+ * Every word of a description is split into trigrams, padded at the front so that the start of a word
+ * carries extra weight ("  g", " gr", "gra", "rab"). A search word first collects candidates that share
+ * its trigrams, which are then verified word by word. An exact search matches description words that start
+ * with the search word ("grab" finds "Grab ride"), like {@link TransactionQueryPlan#matchesDescription(String)}.
+ * A typo-tolerant search also accepts words of five or more
+ * letters that are one typo away, two for long words ("cofee" finds "coffee"); shorter words are too close
+ * to other words ("rent" and "rest") to guess. A description matches if every search word matches one of its words.
+ * </p>
+ * <p>
+ * Typos are only a fallback: {@link TransactionIndex} searches exactly first and tolerates typos only if that
+ * found nothing.
+ * </p>
+ * Not thread-safe, {@link TransactionIndex} guards it with its lock.
+ */
+class DescriptionIndex {
+
+  /** Share of a search word's trigrams a candidate must have. */
+  private static final double MIN_TRIGRAM_SHARE = 0.6;
+
+  private final Map<String, Set<String>> postings = new HashMap<>();
+  private final Map<String, String[]> wordsById = new HashMap<>();
+
+  /**
+   * Indexes the description of a transaction, replacing its previous description.
+   */
+  void put(String id, String description) {
+    remove(id);
+    String[] words = words(description);
+    if (words.length == 0) {
+      return;
+    }
+    wordsById.put(id, words);
+    for (String word : words) {
+      for (String trigram : trigrams(word)) {
+        postings.computeIfAbsent(trigram, t -> new HashSet<>()).add(id);
+      }
+    }
+  }
+
+  void remove(String id) {
+    String[] words = wordsById.remove(id);
+    if (words == null) {
+      return;
+    }
+    for (String word : words) {
+      for (String trigram : trigrams(word)) {
+        Set<String> ids = postings.get(trigram);
+        if (ids != null && ids.remove(id) && ids.isEmpty()) {
+          postings.remove(trigram);
+        }
+      }
+    }
+  }
+
+  void clear() {
+    postings.clear();
+    wordsById.clear();
+  }
+
+  /**
+   * @param text the search words
+   * @param tolerateTypos whether a description word may also be a typo away from a search word
+   * @return ids of the transactions whose description matches every word of the text; empty if the text has no words
+   */
+  Set<String> search(String text, boolean tolerateTypos) {
+    return search(words(text), tolerateTypos);
+  }
+
+  /**
+   * @param searchWords lower-case words as split by {@link TransactionQueryPlan}
+   * @param tolerateTypos whether a description word may also be a typo away from a search word
+   * @return ids of the transactions whose description has a match for every search word
+   */
+  Set<String> search(String[] searchWords, boolean tolerateTypos) {
+    Set<String> result = null;
+    for (String searchWord : searchWords) {
+      Set<String> matches = new HashSet<>();
+      for (String id : candidates(searchWord, result, tolerateTypos)) {
+        if (containsMatch(wordsById.get(id), searchWord, tolerateTypos)) {
+          matches.add(id);
+        }
+      }
+      result = matches;
+      if (result.isEmpty()) {
+        break;
+      }
+    }
+    return result != null ? result : Set.of();
+  }
+
+  /**
+   * Ids sharing enough trigrams with the word, restricted to the matches of the previous words if any.
+   * A prefix has all of its trigrams in the word it starts, so an exact search requires all of them.
+   */
+  private Set<String> candidates(String word, Set<String> restrictTo, boolean tolerateTypos) {
+    List<String> trigrams = trigrams(word);
+    Map<String, Integer> hits = new HashMap<>();
+    for (String trigram : trigrams) {
+      for (String id : postings.getOrDefault(trigram, Set.of())) {
+        if (restrictTo == null || restrictTo.contains(id)) {
+          hits.merge(id, 1, Integer::sum);
+        }
+      }
+    }
+    int required = tolerateTypos ? Math.max(1, (int) Math.ceil(trigrams.size() * MIN_TRIGRAM_SHARE)) : trigrams.size();
+    Set<String> candidates = new HashSet<>();
+    hits.forEach((id, count) -> {
+      if (count >= required) {
+        candidates.add(id);
+      }
+    });
+    return candidates;
+  }
+
+  private static boolean containsMatch(String[] words, String searchWord, boolean tolerateTypos) {
+    if (words == null) {
+      return false;
+    }
+    if (TransactionQueryPlan.startsAnyWord(words, searchWord)) {
+      return true;
+    }
+    int maxTypos = !tolerateTypos ? 0 : searchWord.length() >= 8 ? 2 : searchWord.length() >= 5 ? 1 : 0;
+    for (String word : words) {
+      if (maxTypos > 0 && (distance(searchWord, word) <= maxTypos
+          // a typo within a prefix, e.g. "cofe" for "coffee"
+          || word.length() > searchWord.length() && distance(searchWord, word.substring(0, searchWord.length())) <= maxTypos)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Optimal string alignment distance: insertions, deletions, substitutions and swaps of neighbours. */
+  private static int distance(String a, String b) {
+    int[][] d = new int[a.length() + 1][b.length() + 1];
+    for (int i = 0; i <= a.length(); i++) {
+      d[i][0] = i;
+    }
+    for (int j = 0; j <= b.length(); j++) {
+      d[0][j] = j;
+    }
+    for (int i = 1; i <= a.length(); i++) {
+      for (int j = 1; j <= b.length(); j++) {
+        int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+        d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+        if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+          d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+        }
+      }
+    }
+    return d[a.length()][b.length()];
+  }
+
+  private static List<String> trigrams(String word) {
+    String padded = "  " + word;
+    String[] trigrams = new String[padded.length() - 2];
+    for (int i = 0; i < trigrams.length; i++) {
+      trigrams[i] = padded.substring(i, i + 3);
+    }
+    return List.of(trigrams);
+  }
+
+  private static String[] words(String text) {
+    return TransactionQueryPlan.words(text);
+  }
+}
@@ -0,0 +1,244 @@
+package repo;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import ch.ivyteam.ivy.environment.Ivy;
+import entity.MonthlySummary;
+import entity.Transaction;
+import entity.Transaction.Category;
+import entity.Transaction.Type;
+
+/**
+ * Repository of the {@link MonthlySummary} records.
+ * <p>
+ * {@link TransactionRepository} applies every create, update and delete as a delta, so reading the
+ * summaries of a year means reading a few dozen rows instead of all transactions. The Transactions dialog
+ * shows {@link #findRecentTotals()} as its monthly overview. Should the
+ * summaries drift, e.g. after transactions were changed without the repository, {@link #rebuild()}
+ * recomputes them from scratch.
+ * </p>
+ * <p>
+ * Deltas to the same summary are serialized by a lock per summary key, deltas to different summaries run in
+ * parallel. A change that moves a transaction to another summary takes the two keys' locks one after the other,
+ * never both at once.
+ * </p>
+ */
+public class MonthlySummaryRepository {
+
+  private static final String FIELD_KEY = "key";
+  private static final String FIELD_PERIOD = "period";
+
+  /** Number of months of {@link #findRecentTotals()}, including the current one. */
+  private static final int RECENT_MONTHS = 12;
+
+  private static volatile MonthlySummaryRepository instance;
+
+  /** Serializes read-modify-write of the same summary. */
+  private final StripedLock keyLocks = new StripedLock(64);
+
+  /** Deltas share the read lock, {@link #rebuild()} takes the write lock so that no delta interleaves. */
+  private final ReentrantReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+
+  public static MonthlySummaryRepository getInstance() {
+    if (instance == null) {
+      synchronized (MonthlySummaryRepository.class) {
+        if (instance == null) {
+          instance = new MonthlySummaryRepository();
+        }
+      }
+    }
+    return instance;
+  }
+
+  /**
+   * Returns the summaries of the given months, ordered by month.
+   *
+   * @param from first month (inclusive)
+   * @param to last month (inclusive)
+   * @return one summary per month, type and category that has transactions
+   */
+  public List<MonthlySummary> findByMonths(YearMonth from, YearMonth to) {
+    var search = Ivy.repo().search(MonthlySummary.class);
+    search.filter(search.numberField(FIELD_PERIOD).isGreaterOrEqualTo(periodOf(from))).and();
+    search.filter(search.numberField(FIELD_PERIOD).isLessOrEqualTo(periodOf(to))).and();
+    return search.orderBy().field(FIELD_PERIOD).ascending().execute().getAll();
+  }
+
+  /**
+   * Returns the totals per month and type of the last {@value #RECENT_MONTHS} months, newest month first,
+   * for the monthly overview.
+   *
+   * @return one summary per month and type that has transactions; its category is null since it covers all
+   */
+  public List<MonthlySummary> findRecentTotals() {
+    YearMonth to = YearMonth.now();
+    Map<String, MonthlySummary> totals = new HashMap<>();
+    for (MonthlySummary summary : findByMonths(to.minusMonths(RECENT_MONTHS - 1), to)) {
+      MonthlySummary total = totals.computeIfAbsent(summary.getMonth() + "|" + summary.getType(), key -> {
+        MonthlySummary newTotal = new MonthlySummary();
+        newTotal.setKey(key);
+        newTotal.setMonth(summary.getMonth());
+        newTotal.setPeriod(summary.getPeriod());
+        newTotal.setType(summary.getType());
+        return newTotal;
+      });
+      total.setCount(total.getCount() + summary.getCount());
+      total.setTotal(total.getTotal() + summary.getTotal());
+    }
+    List<MonthlySummary> result = new ArrayList<>(totals.values());
+    result.sort(Comparator.comparingInt(MonthlySummary::getPeriod).reversed()
+        .thenComparing(MonthlySummary::getType));
+    return result;
+  }
+
+  /**
+   * Applies a change of a transaction to the summaries.
+   *
+   * @param before the transaction as it was before the change, null if it was created
+   * @param after the transaction as it is after the change, null if it was deleted
+   */
+  public void apply(Transaction before, Transaction after) {
+    String beforeKey = keyOf(before);
+    String afterKey = keyOf(after);
+    rebuildLock.readLock().lock();
+    try {
+      if (beforeKey != null && beforeKey.equals(afterKey)) {
+        // Same summary, only the amount may have changed
+        if (before.getAmount() != after.getAmount()) {
+          keyLocks.withLock(afterKey, () -> {
+            MonthlySummary summary = findOrCreate(after);
+            summary.setTotal(summary.getTotal() - before.getAmount() + after.getAmount());
+            Ivy.repo().save(summary);
+          });
+        }
+        return;
+      }
+      if (beforeKey != null) {
+        keyLocks.withLock(beforeKey, () -> add(before, -1));
+      }
+      if (afterKey != null) {
+        keyLocks.withLock(afterKey, () -> add(after, 1));
+      }
+    } finally {
+      rebuildLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Applies many created transactions at once, e.g. an import: each affected summary is read and saved
+   * once instead of once per transaction.
+   *
+   * @param created the created transactions
+   */
+  public void applyCreated(List<Transaction> created) {
+    Map<String, List<Transaction>> byKey = new HashMap<>();
+    for (Transaction transaction : created) {
+      String key = keyOf(transaction);
+      if (key != null) {
+        byKey.computeIfAbsent(key, k -> new ArrayList<>()).add(transaction);
+      }
+    }
+    rebuildLock.readLock().lock();
+    try {
+      byKey.forEach((key, transactions) -> keyLocks.withLock(key, () -> {
+        MonthlySummary summary = findOrCreate(transactions.get(0));
+        for (Transaction transaction : transactions) {
+          summary.setCount(summary.getCount() + 1);
+          summary.setTotal(summary.getTotal() + transaction.getAmount());
+        }
+        Ivy.repo().save(summary);
+      }));
+    } finally {
+      rebuildLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Deletes all summaries and recomputes them from the transactions, e.g. for repair.
+   */
+  public void rebuild() {
+    rebuildLock.writeLock().lock();
+    try {
+      rebuildLocked();
+    } finally {
+      rebuildLock.writeLock().unlock();
+    }
+  }
+
+  private void rebuildLocked() {
+    long start = System.nanoTime();
+    for (MonthlySummary summary : Ivy.repo().search(MonthlySummary.class).execute().getAll()) {
+      Ivy.repo().delete(summary);
+    }
+
+    Map<String, MonthlySummary> summaries = new HashMap<>();
+    TransactionRepository.getInstance().stream().forEach(transaction -> {
+      String key = keyOf(transaction);
+      if (key != null) {
+        MonthlySummary summary = summaries.computeIfAbsent(key, k -> newSummary(k, transaction));
+        summary.setCount(summary.getCount() + 1);
+        summary.setTotal(summary.getTotal() + transaction.getAmount());
+      }
+    });
+    summaries.values().forEach(Ivy.repo()::save);
+    Ivy.log().info("Rebuilt " + summaries.size() + " monthly summaries in "
+        + (System.nanoTime() - start) / 1_000_000 + " ms");
+  }
+
+  private void add(Transaction transaction, int sign) {
+    MonthlySummary summary = findOrCreate(transaction);
+    summary.setCount(summary.getCount() + sign);
+    summary.setTotal(summary.getTotal() + sign * transaction.getAmount());
+    if (summary.getCount() <= 0) {
+      if (summary.getId() != null) {
+        Ivy.repo().delete(summary);
+      }
+      return;
+    }
+    Ivy.repo().save(summary);
+  }
+
+  private MonthlySummary findOrCreate(Transaction transaction) {
+    String key = keyOf(transaction);
+    MonthlySummary summary = Ivy.repo().search(MonthlySummary.class)
+        .textField(FIELD_KEY).isEqualTo(key).execute().getFirst();
+    return summary != null ? summary : newSummary(key, transaction);
+  }
+
+  private static MonthlySummary newSummary(String key, Transaction transaction) {
+    MonthlySummary summary = new MonthlySummary();
+    summary.setKey(key);
+    YearMonth month = YearMonth.from(transaction.getDate());
+    summary.setMonth(month.toString());
+    summary.setPeriod(periodOf(month));
+    summary.setType(typeOf(transaction));
+    summary.setCategory(categoryOf(transaction));
+    return summary;
+  }
+
+  private static int periodOf(YearMonth month) {
+    return month.getYear() * 100 + month.getMonthValue();
+  }
+
+  /** @return the summary key of the transaction, null if it has no date and so belongs to no month */
+  private static String keyOf(Transaction transaction) {
+    if (transaction == null || transaction.getDate() == null) {
+      return null;
+    }
+    return YearMonth.from(transaction.getDate()) + "|" + typeOf(transaction) + "|" + categoryOf(transaction);
+  }
+
+  private static Type typeOf(Transaction transaction) {
+    return transaction.getType() != null ? transaction.getType() : Type.NONE;
+  }
+
+  private static Category categoryOf(Transaction transaction) {
+    return transaction.getCategory() != null ? transaction.getCategory() : Category.NONE;
+  }
+}
@@ -0,0 +1,64 @@
+package repo;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * A fixed set of locks shared by keys through their hash code.
+ * <p>
+ * Work on the same key is serialized, work on different keys runs in parallel unless
+ * the keys happen to share a stripe. Memory stays constant however many keys there are.
+ * </p>
+ */
+class StripedLock {
+
+  private final ReentrantLock[] stripes;
+
+  /**
+   * @param stripes number of locks, rounded up to a power of two
+   */
+  StripedLock(int stripes) {
+    int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+    this.stripes = new ReentrantLock[size];
+    for (int i = 0; i < size; i++) {
+      this.stripes[i] = new ReentrantLock();
+    }
+  }
+
+  /**
+   * Runs the action while holding the lock of the key's stripe.
+   *
+   * @param key the key to serialize on, null keys share one stripe
+   * @param action the work to do
+   * @return the action's result
+   */
+  <T> T withLock(Object key, Supplier<T> action) {
+    ReentrantLock lock = stripeOf(key);
+    lock.lock();
+    try {
+      return action.get();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Runs the action while holding the lock of the key's stripe.
+   *
+   * @param key the key to serialize on, null keys share one stripe
+   * @param action the work to do
+   */
+  void withLock(Object key, Runnable action) {
+    withLock(key, () -> {
+      action.run();
+      return null;
+    });
+  }
+
+  private ReentrantLock stripeOf(Object key) {
+    int hash = key == null ? 0 : key.hashCode();
+    // Spread the high bits, String hash codes of similar ids differ mostly in the low ones
+    hash ^= hash >>> 16;
+    return stripes[hash & (stripes.length - 1)];
+  }
+}
@@ -0,0 +1,34 @@
+package repo;
+
+/**
+ * Thrown when a transaction is updated based on an outdated version, i.e. someone else
+ * changed it since it was read. The caller should re-read the transaction and retry.
+ */
+public class TransactionConflictException extends RuntimeException {
+
+  private static final long serialVersionUID = 4209473262914125834L;
+
+  private final String transactionId;
+  private final long expectedVersion;
+  private final long actualVersion;
+
+  public TransactionConflictException(String transactionId, long expectedVersion, long actualVersion) {
+    super("Transaction " + transactionId + " was changed by someone else (version " + actualVersion
+        + ", expected " + expectedVersion + "), please reload it and try again");
+    this.transactionId = transactionId;
+    this.expectedVersion = expectedVersion;
+    this.actualVersion = actualVersion;
+  }
+
+  public String getTransactionId() {
+    return transactionId;
+  }
+
+  public long getExpectedVersion() {
+    return expectedVersion;
+  }
+
+  public long getActualVersion() {
+    return actualVersion;
+  }
+}
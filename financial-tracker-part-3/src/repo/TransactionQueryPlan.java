@@ -0,0 +1,231 @@
+package repo;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.Locale;
+import java.util.function.Predicate;
+
+import org.apache.commons.lang3.StringUtils;
+
+import ch.ivyteam.ivy.business.data.store.search.Query;
+import entity.Transaction;
+import entity.Transaction.Category;
+import entity.Transaction.Type;
+import entity.TransactionSearchCriteria;
+
+/**
+ * The filters of a {@link TransactionSearchCriteria}, compiled once into an immutable plan.
+ * <p>
+ * Blank values and the NONE type and category count as "no filter", date bounds are converted to
+ * instants in the system time zone at compile time. Order and paging fields are not part of the plan.
+ * </p>
+ * <p>
+ * A plan can be applied to an Ivy search or used as an in-memory {@link Predicate}; both select the same
+ * transactions. The description matches if every search word starts one of its words ("grab ri" finds
+ * "Grab ride"), words being split at blanks and punctuation and compared ignoring case. The
+ * {@link TransactionIndex} filters by the plan and the search cache is keyed by its {@link #canonicalKey()}.
+ * </p>
+ * Instances are immutable and can be shared between threads.
+ */
+public final class TransactionQueryPlan implements Predicate<Transaction> {
+
+  private static final String FIELD_AMOUNT = "amount";
+  private static final String FIELD_TYPE = "type";
+  private static final String FIELD_CATEGORY = "category";
+  private static final String FIELD_DESCRIPTION = "description";
+  private static final String FIELD_DATE = "date";
+
+  private static final String WORD_SEPARATORS = " \t\r\n.,;:!?()[]{}\"'/-*";
+
+  private static final TransactionQueryPlan EMPTY = new TransactionQueryPlan(new TransactionSearchCriteria());
+
+  private final Double minAmount;
+  private final Double maxAmount;
+  private final Type type;
+  private final Category category;
+  private final String[] descriptionWords;
+  private final LocalDate fromDate;
+  private final LocalDate toDate;
+  private final Date fromInstant;
+  private final Date toInstant;
+
+  private TransactionQueryPlan(TransactionSearchCriteria criteria) {
+    minAmount = criteria.getMinAmount();
+    maxAmount = criteria.getMaxAmount();
+    type = criteria.getType() != Type.NONE ? criteria.getType() : null;
+    category = criteria.getCategory() != Category.NONE ? criteria.getCategory() : null;
+    String[] words = words(criteria.getDescriptionContains());
+    descriptionWords = words.length > 0 ? words : null;
+    fromDate = criteria.getFromDate();
+    toDate = criteria.getToDate();
+    ZoneId zone = ZoneId.systemDefault();
+    // from inclusive start-of-day, to inclusive end-of-day (23:59:59.999)
+    fromInstant = fromDate != null ? Date.from(fromDate.atStartOfDay(zone).toInstant()) : null;
+    toInstant = toDate != null ? Date.from(toDate.plusDays(1).atStartOfDay(zone).toInstant().minusMillis(1)) : null;
+  }
+
+  /**
+   * Compiles the filters of the criteria.
+   *
+   * @param criteria the criteria, null for a plan without filters
+   * @return the plan, never null
+   */
+  public static TransactionQueryPlan compile(TransactionSearchCriteria criteria) {
+    return criteria == null ? EMPTY : new TransactionQueryPlan(criteria);
+  }
+
+  /**
+   * @return true if the plan has no filter and thus matches all transactions
+   */
+  public boolean isEmpty() {
+    return minAmount == null && maxAmount == null && type == null && category == null
+        && descriptionWords == null && fromDate == null && toDate == null;
+  }
+
+  /**
+   * @return true if the plan filters on the description
+   */
+  public boolean hasDescriptionFilter() {
+    return descriptionWords != null;
+  }
+
+  /**
+   * Canonical text form of the filters: equal for all criteria that select the same transactions
+   * regardless of blanks, case of the description or NONE placeholders. Used as cache key.
+   */
+  public String canonicalKey() {
+    return "min=" + minAmount + ";max=" + maxAmount + ";type=" + type + ";category=" + category
+        + ";description=" + (descriptionWords != null ? String.join(" ", descriptionWords) : null)
+        + ";from=" + fromDate + ";to=" + toDate;
+  }
+
+  /**
+   * Adds the filters of the plan to an Ivy search, the most selective first:
+   * equality on category, date range, type, amount range, and full-text on the description last.
+   *
+   * @param search the search to add the filters to
+   * @return the same search
+   */
+  public Query<Transaction> applyTo(Query<Transaction> search) {
+    if (category != null) {
+      search.filter(search.textField(FIELD_CATEGORY).isEqualToIgnoringCase(category.name())).and();
+    }
+    if (fromInstant != null) {
+      search.filter(search.dateTimeField(FIELD_DATE).isAfter(fromInstant)).and();
+    }
+    if (toInstant != null) {
+      search.filter(search.dateTimeField(FIELD_DATE).isBefore(toInstant)).and();
+    }
+    if (type != null) {
+      search.filter(search.textField(FIELD_TYPE).isEqualToIgnoringCase(type.name())).and();
+    }
+    if (minAmount != null) {
+      search.filter(search.numberField(FIELD_AMOUNT).isGreaterOrEqualTo(minAmount)).and();
+    }
+    if (maxAmount != null) {
+      search.filter(search.numberField(FIELD_AMOUNT).isLessOrEqualTo(maxAmount)).and();
+    }
+    if (descriptionWords != null) {
+      // Each search word as a prefix pattern, e.g. "grab ri" becomes "grab* ri*"
+      search.filter(search.textField(FIELD_DESCRIPTION).containsAllWordPatterns(String.join("* ", descriptionWords) + "*")).and();
+    }
+    return search;
+  }
+
+  /**
+   * Evaluates the plan in memory, checking the filters in the same order as {@link #applyTo(Query)}.
+   */
+  @Override
+  public boolean test(Transaction transaction) {
+    if (transaction == null) {
+      return false;
+    }
+    if (category != null && transaction.getCategory() != category) {
+      return false;
+    }
+    if (fromDate != null || toDate != null) {
+      LocalDate date = transaction.getDate();
+      if (date == null || fromDate != null && date.isBefore(fromDate) || toDate != null && date.isAfter(toDate)) {
+        return false;
+      }
+    }
+    if (type != null && transaction.getType() != type) {
+      return false;
+    }
+    if (minAmount != null && transaction.getAmount() < minAmount
+        || maxAmount != null && transaction.getAmount() > maxAmount) {
+      return false;
+    }
+    return descriptionWords == null || matchesDescription(transaction.getDescription());
+  }
+
+  /**
+   * @return true if every search word starts a word of the description, or if the plan has no description filter
+   */
+  public boolean matchesDescription(String description) {
+    return descriptionWords == null || startsWords(words(description), descriptionWords);
+  }
+
+  /**
+   * @return true if every search word starts one of the words
+   */
+  static boolean startsWords(String[] words, String[] searchWords) {
+    for (String searchWord : searchWords) {
+      if (!startsAnyWord(words, searchWord)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  static boolean startsAnyWord(String[] words, String prefix) {
+    for (String word : words) {
+      if (word.startsWith(prefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Splits a text into lower-case words at blanks and punctuation, the way descriptions are matched.
+   *
+   * @return the words, empty for a blank text
+   */
+  static String[] words(String text) {
+    if (StringUtils.isBlank(text)) {
+      return new String[0];
+    }
+    return StringUtils.split(text.toLowerCase(Locale.ROOT), WORD_SEPARATORS);
+  }
+
+  Double minAmount() {
+    return minAmount;
+  }
+
+  Double maxAmount() {
+    return maxAmount;
+  }
+
+  Type type() {
+    return type;
+  }
+
+  Category category() {
+    return category;
+  }
+
+  LocalDate fromDate() {
+    return fromDate;
+  }
+
+  LocalDate toDate() {
+    return toDate;
+  }
+
+  /** @return the lower-case search words of the description filter, null if there is none */
+  String[] descriptionWords() {
+    return descriptionWords;
+  }
+}
@@ -1,42 +1,118 @@
 package repo;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 
-import ch.ivyteam.ivy.business.data.store.search.Filter;
+import cache.BoundedCache;
+import ch.ivyteam.ivy.business.data.store.search.Query;
+import ch.ivyteam.ivy.business.data.store.search.Result;
 import ch.ivyteam.ivy.environment.Ivy;
 import entity.Transaction;
-import entity.Transaction.Category;
-import entity.Transaction.Type;
+import entity.TransactionAggregate;
+import entity.TransactionAggregate.GroupBy;
+import entity.TransactionPage;
 import entity.TransactionSearchCriteria;
+import entity.TransactionSearchCriteria.SortOrder;
 
 /**
  * Repository class for managing {@link Transaction} entities.
  * Provides basic CRUD operations and search by criteria.
+ * <p>
+ * With {@code Transactions.WriteBehind.Enabled} creates are buffered and saved in batches of
+ * {@code Transactions.WriteBehind.BatchSize}, or once the oldest one waited {@code Transactions.WriteBehind.MaxDelayMillis}.
+ * A buffered transaction gets its id right away and is visible at once in the {@link TransactionIndex}, the aggregates
+ * and the monthly summaries; every read of the store writes the buffer first, so searches never miss it.
+ * {@link WriteBehindFlushBean} writes an idle buffer and the rest on shutdown. A failed save is retried by the next
+ * flush, the create that buffered it has already returned. The mode is off by default.
+ * </p>
  */
 public class TransactionRepository {
 
   private static final String FIELD_AMOUNT = "amount";
-  private static final String FIELD_TYPE = "type";
-  private static final String FIELD_CATEGORY = "category";
-  private static final String FIELD_DESCRIPTION = "description";
   private static final String FIELD_DATE = "date";
+  private static final String FIELD_ID = "id";
 
-  private static TransactionRepository instance;
+  private static final int DEFAULT_PAGE_SIZE = 50;
+  private static final int MAX_PAGE_SIZE = 500;
+  private static final int DEFAULT_CHUNK_SIZE = 200;
+
+  /** Lower date bound that only excludes transactions without a date, see {@link ChunkReader}. */
+  private static final LocalDate EARLIEST_DATE = LocalDate.of(1, 1, 1);
+
+  /** Above this number of index hits, transactions are streamed instead of looked up one by one. */
+  private static final int MAX_ID_LOOKUPS = 200;
+
+  private static final String VAR_WRITE_BEHIND = "Transactions.WriteBehind.Enabled";
+  private static final String VAR_WRITE_BEHIND_BATCH_SIZE = "Transactions.WriteBehind.BatchSize";
+  private static final String VAR_WRITE_BEHIND_MAX_DELAY = "Transactions.WriteBehind.MaxDelayMillis";
+
+  private static volatile TransactionRepository instance;
+
+  /**
+   * Transactions by id for update and delete. Only this repository writes transactions,
+   * so entries are replaced or dropped on every write instead of expiring quickly.
+   */
+  private static final BoundedCache<String, Transaction> ID_CACHE = new BoundedCache<>(1000, Duration.ofMinutes(30));
+
+  /**
+   * Search results keyed by repository version and canonical criteria. Every write bumps the version,
+   * so entries of older versions are never hit again and age out of the LRU.
+   */
+  private static final BoundedCache<String, List<Transaction>> RESULT_CACHE = new BoundedCache<>(200, Duration.ofMinutes(10));
+
+  /** Larger results are not cached, a few of them would dominate the heap. */
+  private static final int MAX_CACHED_ROWS = 1000;
+
+  /** Bumped on every write of a transaction. */
+  private final AtomicLong version = new AtomicLong();
+
+  /** Serializes updates and deletes of the same transaction, different transactions are written in parallel. */
+  private final StripedLock writeLocks = new StripedLock(64);
+
+  /** Buffers creates in write-behind mode, null if every create is saved right away. */
+  private final WriteBehindBuffer<Transaction> writeBehind;
 
   public static TransactionRepository getInstance() {
     if (instance == null) {
-      instance = new TransactionRepository();
+      synchronized (TransactionRepository.class) {
+        if (instance == null) {
+          instance = new TransactionRepository();
+        }
+      }
     }
     return instance;
   }
 
+  private TransactionRepository() {
+    if (Boolean.parseBoolean(Ivy.var().get(VAR_WRITE_BEHIND))) {
+      int batchSize = NumberUtils.toInt(Ivy.var().get(VAR_WRITE_BEHIND_BATCH_SIZE), 100);
+      long maxDelay = NumberUtils.toLong(Ivy.var().get(VAR_WRITE_BEHIND_MAX_DELAY), 2000);
+      // Resolve the store on the flushing thread, not on the one that created the repository
+      writeBehind = new WriteBehindBuffer<>(batchSize, Duration.ofMillis(maxDelay), transaction -> Ivy.repo().save(transaction));
+    } else {
+      writeBehind = null;
+    }
+  }
+
   /**
    * Creates or saves a new transaction.
    *
@@ -49,46 +125,304 @@ public class TransactionRepository {
       throw new IllegalArgumentException("Transaction cannot be null");
     }
 
-    Ivy.repo().save(transaction);
+    if (writeBehind != null) {
+      buffer(List.of(transaction));
+    } else {
+      save(transaction);
+    }
+    MonthlySummaryRepository.getInstance().apply(null, transaction);
     return transaction;
   }
 
+  /**
+   * Creates many transactions, e.g. for imports. The store has no batch write, so each transaction
+   * is still saved on its own; the monthly summaries are updated once per month, type and category
+   * instead of once per transaction. All transactions are saved before this method returns,
+   * or buffered with their ids in write-behind mode.
+   *
+   * @param transactions the transactions to save
+   * @return the persisted transactions
+   * @throws IllegalArgumentException if the list or one of its transactions is null
+   * @throws TransactionWriteException if some transactions could not be saved, the others are saved
+   */
+  public List<Transaction> createAll(List<Transaction> transactions) {
+    if (transactions == null || transactions.contains(null)) {
+      throw new IllegalArgumentException("Transactions cannot be null");
+    }
+
+    if (writeBehind != null) {
+      buffer(transactions);
+      MonthlySummaryRepository.getInstance().applyCreated(transactions);
+      return transactions;
+    }
+    List<Transaction> saved = new ArrayList<>(transactions.size());
+    List<Transaction> failed = new ArrayList<>();
+    RuntimeException firstError = null;
+    for (Transaction transaction : transactions) {
+      try {
+        save(transaction);
+        saved.add(transaction);
+      } catch (RuntimeException e) {
+        failed.add(transaction);
+        firstError = firstError == null ? e : firstError;
+      }
+    }
+    MonthlySummaryRepository.getInstance().applyCreated(saved);
+    if (firstError != null) {
+      throw new TransactionWriteException(saved, failed, firstError);
+    }
+    return transactions;
+  }
+
+  private void save(Transaction transaction) {
+    Ivy.repo().save(transaction);
+    version.incrementAndGet();
+    indexed(transaction);
+  }
+
+  /**
+   * Gives the transactions their ids and makes them visible in the index before they are buffered,
+   * so a flush only writes the store and never waits for the index lock.
+   */
+  private void buffer(List<Transaction> transactions) {
+    List<Transaction> copies = new ArrayList<>(transactions.size());
+    for (Transaction transaction : transactions) {
+      if (StringUtils.isBlank(transaction.getId())) {
+        transaction.setId(newId());
+      }
+      indexed(transaction);
+      // The caller may change its object before the batch is written
+      copies.add(copyOf(transaction));
+    }
+    version.incrementAndGet();
+    try {
+      writeBehind.addAll(copies);
+    } catch (RuntimeException e) {
+      // The transactions are accepted and stay buffered, the next flush saves them
+      Ivy.log().warn("Could not save buffered transactions, retrying with the next flush", e);
+    }
+  }
+
+  /** Same form as the ids the store generates. */
+  private static String newId() {
+    return UUID.randomUUID().toString().replace("-", "");
+  }
+
+  /**
+   * Saves the transactions buffered in write-behind mode, nothing to do otherwise.
+   * Every read of the store does this first, so searches never miss a buffered transaction.
+   *
+   * @throws RuntimeException if a buffered transaction could not be saved; it stays buffered
+   */
+  public void flush() {
+    if (writeBehind != null) {
+      writeBehind.flush();
+    }
+  }
+
+  /**
+   * @param dueOnly true for only a buffer whose oldest transaction waited longer than
+   *        {@code Transactions.WriteBehind.MaxDelayMillis}
+   * @return true if transactions wait in the write-behind buffer; never creates the repository, needs no Ivy context
+   */
+  static boolean hasBufferedCreates(boolean dueOnly) {
+    TransactionRepository repository = instance;
+    WriteBehindBuffer<Transaction> buffer = repository != null ? repository.writeBehind : null;
+    return buffer != null && (dueOnly ? buffer.isDue() : buffer.size() > 0);
+  }
+
   /**
    * Retrieves all transactions.
+   * Loads the whole store into memory, prefer {@link #stream()} for bulk processing and
+   * {@link #findPageBySearchCriteria(TransactionSearchCriteria)} for anything shown to a user or the agent.
    *
    * @return list of all transactions
    */
   public List<Transaction> findAll() {
-    return Ivy.repo().search(Transaction.class).execute().getAll();
+    return findBySearchCriteria(null);
   }
   
   /**
-   * Updates an existing transaction.
+   * Streams all transactions without loading them into one list.
+   *
+   * @return a lazy stream over all transactions, read in chunks of {@value #DEFAULT_CHUNK_SIZE}
+   * @see #stream(TransactionSearchCriteria, int)
+   */
+  public Stream<Transaction> stream() {
+    return stream(null, DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * Streams the transactions matching the criteria, reading them chunk by chunk ordered by date and id.
+   * <p>
+   * Only one chunk is held in memory at a time, so exports, aggregates and reindexing jobs
+   * can walk the whole history with constant memory. Each chunk continues after the date and id of the
+   * previous one instead of an offset, so reading a chunk costs the same deep into the history and stays
+   * within the store's result window. Transactions created meanwhile before the cursor are not seen,
+   * none is seen twice. Transactions without a date come last, ordered by id; they have no date to continue
+   * after, so they are read by offset, which is cheap as long as there are few of them.
+   * Order and paging fields of the criteria are ignored.
+   * </p>
+   *
+   * @param criteria filters to apply, null streams all transactions
+   * @param chunkSize number of transactions per query, capped at {@value #MAX_PAGE_SIZE}
+   * @return a lazy, sequential stream
+   */
+  public Stream<Transaction> stream(TransactionSearchCriteria criteria, int chunkSize) {
+    int size = chunkSize > 0 ? Math.min(chunkSize, MAX_PAGE_SIZE) : DEFAULT_CHUNK_SIZE;
+    Spliterator<Transaction> spliterator = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+        Spliterator.ORDERED | Spliterator.NONNULL) {
+      private final ChunkReader reader = new ChunkReader(criteria, size);
+      private List<Transaction> chunk = List.of();
+      private int index;
+
+      @Override
+      public boolean tryAdvance(Consumer<? super Transaction> action) {
+        if (index >= chunk.size()) {
+          chunk = reader.next();
+          index = 0;
+          if (chunk == null) {
+            return false;
+          }
+        }
+        action.accept(chunk.get(index++));
+        return true;
+      }
+    };
+    return StreamSupport.stream(spliterator, false);
+  }
+
+  /**
+   * Hands the transactions matching the criteria to the consumer one chunk at a time.
+   *
+   * @param criteria filters to apply, null visits all transactions
+   * @param chunkSize number of transactions per chunk, capped at {@value #MAX_PAGE_SIZE}
+   * @param consumer called once per non-empty chunk
+   * @see #stream(TransactionSearchCriteria, int)
+   */
+  public void forEachChunk(TransactionSearchCriteria criteria, int chunkSize, Consumer<List<Transaction>> consumer) {
+    int size = chunkSize > 0 ? Math.min(chunkSize, MAX_PAGE_SIZE) : DEFAULT_CHUNK_SIZE;
+    ChunkReader reader = new ChunkReader(criteria, size);
+    for (List<Transaction> chunk = reader.next(); chunk != null; chunk = reader.next()) {
+      consumer.accept(chunk);
+    }
+  }
+
+  /**
+   * Reads the transactions matching the criteria chunk by chunk: first those with a date, oldest first, each chunk
+   * continuing after the date and id of the previous one; then those without a date by id. The store has no cursor
+   * position for a missing date, so the dated ones are bounded by {@link #EARLIEST_DATE} and the others get a pass
+   * of their own.
+   */
+  private final class ChunkReader {
+
+    private final TransactionSearchCriteria criteria;
+    private final int size;
+    private TransactionPage page;
+    private boolean datedRead;
+    private int undatedOffset;
+    private boolean undatedRead;
+
+    private ChunkReader(TransactionSearchCriteria criteria, int size) {
+      this.criteria = criteria;
+      this.size = size;
+      // A date range never matches a transaction without date
+      undatedRead = criteria != null && (criteria.getFromDate() != null || criteria.getToDate() != null);
+    }
+
+    /** @return the next non-empty chunk, or null after the last one */
+    private List<Transaction> next() {
+      flush();
+      if (!datedRead) {
+        page = findDatedChunk();
+        datedRead = !page.isHasMore();
+        if (!page.getTransactions().isEmpty()) {
+          return page.getTransactions();
+        }
+      }
+      if (undatedRead) {
+        return null;
+      }
+      // Fetch one row more than requested to know whether there is a next chunk
+      List<Transaction> rows = findUndated(criteria, undatedOffset, size + 1);
+      undatedOffset += size;
+      undatedRead = rows.size() <= size;
+      return rows.isEmpty() ? null : new ArrayList<>(rows.subList(0, Math.min(size, rows.size())));
+    }
+
+    /** Reads the chunk after the previous one, or the first chunk if there is no previous one. */
+    private TransactionPage findDatedChunk() {
+      TransactionSearchCriteria chunk = criteria != null ? criteria.copy() : new TransactionSearchCriteria();
+      chunk.setSortOrder(SortOrder.DATE_ASC);
+      chunk.setLimit(size);
+      chunk.setOffset(null);
+      if (chunk.getFromDate() == null) {
+        chunk.setFromDate(EARLIEST_DATE);
+      }
+      chunk.setAfterDate(page != null ? page.getNextAfterDate() : null);
+      chunk.setAfterId(page != null ? page.getNextAfterId() : null);
+      return findPageBySearchCriteria(chunk);
+    }
+  }
+
+  /** Reads transactions without a date matching the criteria, ordered by id. */
+  private List<Transaction> findUndated(TransactionSearchCriteria criteria, int offset, int count) {
+    TransactionQueryPlan plan = TransactionQueryPlan.compile(criteria);
+    if (plan.hasDescriptionFilter()) {
+      return findByIndex(criteria, true).stream()
+          .filter(transaction -> transaction.getDate() == null)
+          .sorted(Comparator.comparing(Transaction::getId))
+          .skip(offset)
+          .limit(count)
+          .collect(Collectors.toCollection(ArrayList::new));
+    }
+    Query<Transaction> query = createQuery(plan);
+    query.filter(query.dateTimeField(FIELD_DATE).isNull()).and();
+    return query.orderBy().textField(FIELD_ID).ascending().limit(offset, count).execute().getAll();
+  }
+
+  /**
+   * Updates an existing transaction if nobody else changed it since it was read.
+   * <p>
+   * The version of the given transaction must match the stored one, the saved transaction gets the next version.
+   * </p>
    *
-   * @param transaction the transaction to update
+   * @param transaction the transaction to update, carrying the version it was read with
+   * @return the saved transaction, or null if the transaction is null or does not exist (anymore)
+   * @throws TransactionConflictException if the stored transaction has another version
    */
   public Transaction update(Transaction transaction) {
     if (transaction == null) {
       return null;
     }
 
-    // Get latest transaction to avoid concurrent modification
-    Transaction existing =  findById(transaction.getId());
+    // Compare and save must not interleave with another write of the same transaction
+    return writeLocks.withLock(transaction.getId(), () -> {
+      Transaction existing = findById(transaction.getId());
+      if (existing == null) {
+        return null;
+      }
+      if (existing.getVersion() != transaction.getVersion()) {
+        throw new TransactionConflictException(transaction.getId(), transaction.getVersion(), existing.getVersion());
+      }
 
-    try {
-    // Update fields
-    existing.setAmount(transaction.getAmount());
-    existing.setCategory(transaction.getCategory());
-    existing.setDate(transaction.getDate());
-    existing.setDescription(transaction.getDescription());
-    existing.setType(transaction.getType());
+      Transaction previous = copyOf(existing);
+      // Update fields
+      existing.setAmount(transaction.getAmount());
+      existing.setCategory(transaction.getCategory());
+      existing.setDate(transaction.getDate());
+      existing.setDescription(transaction.getDescription());
+      existing.setType(transaction.getType());
+      existing.setVersion(existing.getVersion() + 1);
 
-    // Save the updated transaction
-    Ivy.repo().save(existing);
-    } catch (Exception e) {
-      Ivy.log().error(e);
-    }
-    return findById(transaction.getId());
+      // Save the updated transaction, it is returned as is instead of being read again
+      Ivy.repo().save(existing);
+      version.incrementAndGet();
+      ID_CACHE.put(existing.getId(), copyOf(existing));
+      indexed(existing);
+      MonthlySummaryRepository.getInstance().apply(previous, existing);
+      return existing;
+    });
   }
 
   /**
@@ -101,69 +435,331 @@ public class TransactionRepository {
       return;
     }
 
-    Transaction transactionInRepo = findById(transaction.getId());
-    Ivy.repo().delete(transactionInRepo);
+    writeLocks.withLock(transaction.getId(), () -> {
+      Transaction transactionInRepo = findById(transaction.getId());
+      if (transactionInRepo == null) {
+        return;
+      }
+      Ivy.repo().deleteById(transactionInRepo.getId());
+      version.incrementAndGet();
+      ID_CACHE.invalidate(transactionInRepo.getId());
+      MonthlySummaryRepository.getInstance().apply(transactionInRepo, null);
+      TransactionIndex index = TransactionIndex.getIfBuilt();
+      if (index != null) {
+        index.remove(transaction.getId());
+      }
+    });
   }
 
   /**
    * Searches transactions based on the provided criteria.
    * Returns all transactions if criteria is null or has no filters.
    * Applies filters for amount, type, category, description, and date range (toDate inclusive).
+   * Only if the criteria has an explicit limit, a single page is returned (see {@link #findPageBySearchCriteria});
+   * a sort order alone orders all matching transactions.
+   * <p>
+   * Without a limit every match is loaded, so this is meant for internal callers that need the full result.
+   * Lists shown to a user or the agent use {@link #findPageBySearchCriteria} instead.
+   * </p>
+   * <p>
+   * Description words match by prefix; if no transaction matches that way, words with a typo are accepted.
+   * </p>
    */
   public List<Transaction> findBySearchCriteria(TransactionSearchCriteria criteria) {
-    if (criteria == null || !criteria.hasAnyFilter()) {
-      return findAll();
+    return findBySearchCriteria(criteria, true);
+  }
+
+  /**
+   * Searches transactions like {@link #findBySearchCriteria(TransactionSearchCriteria)}.
+   *
+   * @param criteria filters, order and paging; null finds all transactions
+   * @param tolerateTypos false to match description words only by prefix, e.g. to pick the transaction to update
+   *        or delete, where a near miss must not be taken for the one the user meant
+   */
+  public List<Transaction> findBySearchCriteria(TransactionSearchCriteria criteria, boolean tolerateTypos) {
+    flush();
+    TransactionQueryPlan plan = TransactionQueryPlan.compile(criteria);
+    // Read the version before the store, so a write during the search makes the entry stale
+    String cacheKey = version.get() + "|" + plan.canonicalKey() + "|" + pagingKey(criteria) + "|" + tolerateTypos;
+    List<Transaction> cached = RESULT_CACHE.get(cacheKey);
+    if (cached != null) {
+      return copyOf(cached);
     }
 
-    var search = Ivy.repo().search(Transaction.class);
+    SortOrder sortOrder = criteria != null ? criteria.getSortOrder() : null;
+    List<Transaction> result;
+    if (criteria != null && criteria.getLimit() != null) {
+      result = findPage(criteria, tolerateTypos).getTransactions();
+    } else if (plan.hasDescriptionFilter()) {
+      result = findByIndex(criteria, tolerateTypos);
+      if (sortOrder != null) {
+        result.sort(comparator(sortOrder));
+      }
+    } else if (sortOrder != null) {
+      result = sort(createQuery(plan), sortOrder).execute().getAll();
+    } else {
+      // An empty plan adds no filter and so returns all transactions
+      result = createQuery(plan).execute().getAll();
+    }
+
+    if (result.size() <= MAX_CACHED_ROWS) {
+      RESULT_CACHE.put(cacheKey, copyOf(result));
+    }
+    return result;
+  }
+
+  /**
+   * Searches one page of transactions matching the provided criteria.
+   * <p>
+   * Results are sorted by the criteria's sort order (newest first by default, ties broken by id).
+   * For date orders the page continues after the criteria's cursor (afterDate + afterId) if present,
+   * otherwise after offset results. The page size is the criteria's limit, capped at {@value #MAX_PAGE_SIZE}.
+   * Descriptions match as in {@link #findBySearchCriteria(TransactionSearchCriteria)}.
+   * </p>
+   *
+   * @param criteria filters, order and page to fetch; null fetches the first page of all transactions
+   * @return the requested page, never null
+   */
+  public TransactionPage findPageBySearchCriteria(TransactionSearchCriteria criteria) {
+    return findPage(criteria, true);
+  }
 
-    // Collect filters
-    List<Filter<Transaction>> filters = new ArrayList<>();
+  private TransactionPage findPage(TransactionSearchCriteria criteria, boolean tolerateTypos) {
+    flush();
+    TransactionSearchCriteria effective = criteria != null ? criteria : new TransactionSearchCriteria();
+    SortOrder sortOrder = effective.getSortOrder() != null ? effective.getSortOrder() : SortOrder.DATE_DESC;
+    int limit = effective.getLimit() != null && effective.getLimit() > 0
+        ? Math.min(effective.getLimit(), MAX_PAGE_SIZE) : DEFAULT_PAGE_SIZE;
+    boolean keyset = sortOrder.isByDate() && effective.hasCursor();
+    int offset = keyset || effective.getOffset() == null ? 0 : Math.max(0, effective.getOffset());
 
-    // Amount range
-    if (criteria.getMinAmount() != null) {
-      filters.add(search.numberField(FIELD_AMOUNT).isGreaterOrEqualTo(criteria.getMinAmount()));
+    TransactionQueryPlan plan = TransactionQueryPlan.compile(effective);
+    if (plan.hasDescriptionFilter()) {
+      // Match descriptions on the index like the unpaged search does, so a page never disagrees with the full result
+      return pageOf(findByIndex(effective, tolerateTypos), effective, sortOrder, offset, limit, keyset);
     }
-    if (criteria.getMaxAmount() != null) {
-      // max should be lessOrEqualTo
-      filters.add(search.numberField(FIELD_AMOUNT).isLessOrEqualTo(criteria.getMaxAmount()));
+    Query<Transaction> query = createQuery(plan);
+    if (keyset) {
+      LocalDate cursorDate = effective.getAfterDate();
+      // The store cannot compare ids, so rows of the cursor's day up to the cursor are skipped below
+      if (sortOrder.isAscending()) {
+        query.filter(query.dateTimeField(FIELD_DATE).isAfter(startOfDay(cursorDate))).and();
+      } else {
+        query.filter(query.dateTimeField(FIELD_DATE).isBefore(endOfDay(cursorDate))).and();
+      }
     }
+    Query<Transaction> sorted = sort(query, sortOrder);
 
-    // Type & category (enums)
-    if (criteria.getType() != null && criteria.getType() != Type.NONE) {
-      filters.add(search.textField(FIELD_TYPE).isEqualToIgnoringCase(criteria.getType().name()));
+    // Fetch one row more than requested to know whether there is a next page
+    Result<Transaction> result = sorted.limit(offset, limit + 1).execute();
+    List<Transaction> rows = result.getAll();
+    if (keyset) {
+      rows = skipToCursor(sorted, rows, limit + 1, effective.getAfterDate(), effective.getAfterId(), sortOrder.isAscending());
     }
-    if (criteria.getCategory() != null && criteria.getCategory() != Category.NONE) {
-      filters.add(search.textField(FIELD_CATEGORY).isEqualToIgnoringCase(criteria.getCategory().name()));
+    return page(rows, result.totalCount(), offset, limit, sortOrder);
+  }
+
+  /** Sorts and pages the matches of an index search in memory, with the same order and cursor as the store. */
+  private static TransactionPage pageOf(List<Transaction> matches, TransactionSearchCriteria criteria,
+      SortOrder sortOrder, int offset, int limit, boolean keyset) {
+    Comparator<Transaction> comparator = comparator(sortOrder);
+    matches.sort(comparator);
+    List<Transaction> rows = matches;
+    if (keyset) {
+      Transaction cursor = new Transaction();
+      cursor.setDate(criteria.getAfterDate());
+      cursor.setId(criteria.getAfterId());
+      rows = matches.stream().filter(t -> comparator.compare(t, cursor) > 0)
+          .collect(Collectors.toCollection(ArrayList::new));
     }
+    int from = Math.min(offset, rows.size());
+    return page(rows.subList(from, Math.min(rows.size(), from + limit + 1)), rows.size(), offset, limit, sortOrder);
+  }
 
-    // Description full-text (guard blank)
-    if (StringUtils.isNotBlank(criteria.getDescriptionContains())) {
-      filters.add(search.textField(FIELD_DESCRIPTION).containsAllWordPatterns(criteria.getDescriptionContains()));
+  /**
+   * @param rows the rows of the page plus, if there is a next page, at least one more
+   */
+  private static TransactionPage page(List<Transaction> rows, long totalCount, int offset, int limit, SortOrder sortOrder) {
+    TransactionPage page = new TransactionPage();
+    page.setOffset(offset);
+    page.setLimit(limit);
+    page.setTotalCount(totalCount);
+    page.setHasMore(rows.size() > limit);
+    page.setTransactions(new ArrayList<>(rows.subList(0, Math.min(limit, rows.size()))));
+    if (page.isHasMore() && sortOrder.isByDate()) {
+      Transaction last = page.getTransactions().get(limit - 1);
+      page.setNextAfterDate(last.getDate());
+      page.setNextAfterId(last.getId());
     }
+    return page;
+  }
 
-    // Date range (from inclusive start-of-day, to inclusive end-of-day)
-    if (criteria.getFromDate() != null) {
-      filters.add(search.dateTimeField(FIELD_DATE).isAfter(startOfDay(criteria.getFromDate())));
+  /**
+   * Aggregates the amounts of the transactions matching the criteria, e.g. the total spent per category this month.
+   * Computed on the {@link TransactionIndex} without loading any transaction.
+   *
+   * @param criteria filters to apply, null aggregates all transactions; order and paging fields are ignored
+   * @param groupBy how to group, null for a single total
+   * @return one aggregate per non-empty group, ordered by group
+   */
+  public List<TransactionAggregate> aggregate(TransactionSearchCriteria criteria, GroupBy groupBy) {
+    return TransactionIndex.getInstance().aggregate(criteria, groupBy);
+  }
+
+  /**
+   * Resolves the criteria on the {@link TransactionIndex}, whose description filter matches prefixes like the store and,
+   * if allowed and nothing matches otherwise, typos the store does not, and loads the matching transactions by id.
+   */
+  private List<Transaction> findByIndex(TransactionSearchCriteria criteria, boolean tolerateTypos) {
+    TransactionQueryPlan plan = TransactionQueryPlan.compile(criteria);
+    List<String> ids = TransactionIndex.getInstance().findIds(criteria, tolerateTypos);
+    if (ids.size() > MAX_ID_LOOKUPS) {
+      // Cheaper to walk the other filters' results in chunks than to look up every id
+      Set<String> idSet = new HashSet<>(ids);
+      TransactionSearchCriteria withoutDescription = criteria.copy();
+      withoutDescription.setDescriptionContains(null);
+      return stream(withoutDescription, MAX_PAGE_SIZE).filter(t -> idSet.contains(t.getId()))
+          .collect(Collectors.toCollection(ArrayList::new));
     }
-    if (criteria.getToDate() != null) {
-      filters.add(search.dateTimeField(FIELD_DATE).isBefore(endOfDay(criteria.getToDate())));
+    List<Transaction> result = new ArrayList<>();
+    for (String id : ids) {
+      Transaction transaction = findById(id);
+      // Without typos the cached transaction must still satisfy the plan, like a search on the store would
+      if (transaction != null && (tolerateTypos || plan.test(transaction))) {
+        result.add(transaction);
+      }
     }
+    return result;
+  }
 
-    // Apply collected filters
-    for (Filter<Transaction> f : filters) {
-      // chaining .and() after filter is acceptable in current API usage
-      search.filter(f).and();
+  /** Creates a search with the filters of the plan, without order or paging. */
+  private static Query<Transaction> createQuery(TransactionQueryPlan plan) {
+    return plan.applyTo(Ivy.repo().search(Transaction.class));
+  }
+
+  /** Sorts by the given order, ties are broken by id so that pages are stable. */
+  private static Query<Transaction> sort(Query<Transaction> query, SortOrder sortOrder) {
+    String field = sortOrder.isByDate() ? FIELD_DATE : FIELD_AMOUNT;
+    if (sortOrder.isAscending()) {
+      return query.orderBy().field(field).ascending().orderBy().textField(FIELD_ID).ascending();
+    }
+    return query.orderBy().field(field).descending().orderBy().textField(FIELD_ID).descending();
+  }
+
+  /**
+   * Drops the rows up to the cursor, which come first since the query is sorted by date and id, and reads further
+   * batches while they only contained such rows. Usually the first batch suffices, so no count query is needed.
+   */
+  private static List<Transaction> skipToCursor(Query<Transaction> query, List<Transaction> firstBatch, int size,
+      LocalDate afterDate, String afterId, boolean ascending) {
+    List<Transaction> remaining = new ArrayList<>(size);
+    List<Transaction> batch = firstBatch;
+    int offset = 0;
+    while (true) {
+      for (Transaction row : batch) {
+        if (remaining.isEmpty() && isUpToCursor(row, afterDate, afterId, ascending)) {
+          continue;
+        }
+        remaining.add(row);
+      }
+      if (remaining.size() >= size || batch.size() < size) {
+        return remaining;
+      }
+      offset += batch.size();
+      batch = query.limit(offset, size).execute().getAll();
     }
+  }
 
-    // TODO: apply pagination/sorting if criteria contains them
-    // e.g. if (criteria.hasPaging()) search.range(criteria.getOffset(), criteria.getLimit());
+  private static boolean isUpToCursor(Transaction row, LocalDate afterDate, String afterId, boolean ascending) {
+    if (!afterDate.equals(row.getDate())) {
+      return false;
+    }
+    int comparison = StringUtils.compare(row.getId(), afterId);
+    return ascending ? comparison <= 0 : comparison >= 0;
+  }
 
-    return search.execute().getAll();
+  /** In-memory equivalent of {@link #sort(Query, SortOrder)}. */
+  private static Comparator<Transaction> comparator(SortOrder sortOrder) {
+    Comparator<Transaction> comparator = sortOrder.isByDate()
+        ? Comparator.comparing(Transaction::getDate, Comparator.nullsFirst(Comparator.naturalOrder()))
+        : Comparator.comparingDouble(Transaction::getAmount);
+    comparator = comparator.thenComparing(Transaction::getId, Comparator.nullsFirst(Comparator.naturalOrder()));
+    return sortOrder.isAscending() ? comparator : comparator.reversed();
   }
 
+  /** Keeps the in-memory index in sync, if one was built. */
+  private static void indexed(Transaction transaction) {
+    TransactionIndex index = TransactionIndex.getIfBuilt();
+    if (index != null) {
+      index.put(transaction);
+    }
+  }
+
+  private static String pagingKey(TransactionSearchCriteria criteria) {
+    if (criteria == null || !criteria.hasPaging()) {
+      return "";
+    }
+    return criteria.getSortOrder() + ";" + criteria.getLimit() + ";" + criteria.getOffset() + ";"
+        + criteria.getAfterDate() + ";" + criteria.getAfterId();
+  }
+
+  /** Copies the list and its transactions, cached results must not be changed by callers. */
+  private static List<Transaction> copyOf(List<Transaction> transactions) {
+    List<Transaction> copies = new ArrayList<>(transactions.size());
+    for (Transaction transaction : transactions) {
+      copies.add(copyOf(transaction));
+    }
+    return copies;
+  }
+
+  private static Transaction copyOf(Transaction transaction) {
+    Transaction copy = new Transaction();
+    copy.setId(transaction.getId());
+    copy.setAmount(transaction.getAmount());
+    copy.setType(transaction.getType());
+    copy.setCategory(transaction.getCategory());
+    copy.setDescription(transaction.getDescription());
+    copy.setDate(transaction.getDate());
+    copy.setVersion(transaction.getVersion());
+    return copy;
+  }
+
+  /**
+   * Cache of search results, e.g. to expose its hit rate.
+   */
+  public static BoundedCache<String, List<Transaction>> getResultCache() {
+    return RESULT_CACHE;
+  }
+
+  /**
+   * @return the repository version, increased by every create, update and delete
+   */
+  public long getVersion() {
+    return version.get();
+  }
+
+  /**
+   * Cache of transactions by id, e.g. to expose its hit, miss and eviction counts.
+   */
+  public static BoundedCache<String, Transaction> getIdCache() {
+    return ID_CACHE;
+  }
+
+  /** Direct lookup by id, served from the id cache if possible. Hands out copies, so callers may modify them. */
   private Transaction findById(String id) {
-    return Ivy.repo().search(Transaction.class).textField("id").isEqualToIgnoringCase(id).execute().getFirst();
+    if (StringUtils.isBlank(id)) {
+      return null;
+    }
+    flush();
+    Transaction cached = ID_CACHE.get(id);
+    if (cached != null) {
+      return copyOf(cached);
+    }
+    Transaction transaction = Ivy.repo().find(id, Transaction.class);
+    if (transaction != null) {
+      ID_CACHE.put(id, copyOf(transaction));
+    }
+    return transaction;
   }
 
   /** Convert LocalDate to Date at start of day in system default zone. */
@@ -0,0 +1,34 @@
+package repo;
+
+import java.util.List;
+
+import entity.Transaction;
+
+/**
+ * Thrown when some transactions of a {@link TransactionRepository#createAll(List)} could not be saved.
+ * The others were saved; both lists are available so the caller can report or retry the failed ones.
+ */
+public class TransactionWriteException extends RuntimeException {
+
+  private static final long serialVersionUID = -3182546078290245123L;
+
+  private final List<Transaction> saved;
+  private final List<Transaction> failed;
+
+  public TransactionWriteException(List<Transaction> saved, List<Transaction> failed, Throwable cause) {
+    super(failed.size() + " of " + (saved.size() + failed.size()) + " transactions could not be saved: "
+        + cause.getMessage(), cause);
+    this.saved = saved;
+    this.failed = failed;
+  }
+
+  /** @return the transactions that were saved, with their ids */
+  public List<Transaction> getSaved() {
+    return saved;
+  }
+
+  /** @return the transactions that were not saved */
+  public List<Transaction> getFailed() {
+    return failed;
+  }
+}
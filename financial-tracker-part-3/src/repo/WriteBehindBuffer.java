@@ -0,0 +1,149 @@
+package repo;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Buffers writes and hands them to a writer in batches.
+ * <p>
+ * A batch is written as soon as the buffer holds {@code maxSize} items or its oldest item is older
+ * than {@code maxDelay}. The thresholds are checked on every {@link #add(Object)} and {@link #flushIfDue()};
+ * the buffer starts no thread of its own, Ivy's business data store can only be used on threads Ivy runs.
+ * </p>
+ * <p>
+ * {@link #flush()} returns only after every item added before the call was written, including items
+ * another thread is writing at that moment. Callers use this to read their own writes. An item whose write
+ * fails stays in the buffer, ahead of the items added later, and is written again by the next flush.
+ * </p>
+ * <p>
+ * Writing holds no lock but the buffer's own, so a flush may run while the caller holds other locks.
+ * </p>
+ *
+ * @param <T> type of the buffered items
+ */
+class WriteBehindBuffer<T> {
+
+  private final int maxSize;
+  private final long maxDelayNanos;
+  private final Consumer<T> writer;
+
+  /** Guards {@link #pending} and {@link #oldestNanos}. */
+  private final Object bufferLock = new Object();
+
+  /** Held while a batch is written, so that flushing readers wait for items that are on their way. */
+  private final ReentrantLock writeLock = new ReentrantLock();
+
+  private List<T> pending = new ArrayList<>();
+  private long oldestNanos;
+
+  /**
+   * @param maxSize number of items that triggers a write
+   * @param maxDelay age of the oldest item that triggers a write
+   * @param writer writes one item, called by the thread that triggers the flush; throws if the item was not written
+   */
+  WriteBehindBuffer(int maxSize, Duration maxDelay, Consumer<T> writer) {
+    this.maxSize = maxSize;
+    this.maxDelayNanos = maxDelay.toNanos();
+    this.writer = writer;
+  }
+
+  /**
+   * Adds an item and writes the batch if a threshold is reached.
+   *
+   * @throws RuntimeException if the batch was due and could not be written; the items stay buffered
+   */
+  void add(T item) {
+    addAll(List.of(item));
+  }
+
+  /**
+   * Adds items and writes the batch if a threshold is reached.
+   *
+   * @throws RuntimeException if the batch was due and could not be written; the items stay buffered
+   */
+  void addAll(Collection<? extends T> items) {
+    boolean full;
+    synchronized (bufferLock) {
+      if (pending.isEmpty()) {
+        oldestNanos = System.nanoTime();
+      }
+      pending.addAll(items);
+      full = pending.size() >= maxSize;
+    }
+    if (full) {
+      flush();
+    } else {
+      flushIfDue();
+    }
+  }
+
+  /**
+   * Writes the buffered items if the oldest one waited longer than the maximum delay.
+   */
+  void flushIfDue() {
+    if (isDue()) {
+      flush();
+    }
+  }
+
+  /**
+   * @return true if the oldest buffered item waited longer than the maximum delay
+   */
+  boolean isDue() {
+    synchronized (bufferLock) {
+      return !pending.isEmpty() && System.nanoTime() - oldestNanos >= maxDelayNanos;
+    }
+  }
+
+  /**
+   * Writes all buffered items in the order they were added.
+   *
+   * @throws RuntimeException of the first item that could not be written; it and the items after it stay buffered
+   */
+  void flush() {
+    writeLock.lock();
+    try {
+      List<T> batch;
+      synchronized (bufferLock) {
+        if (pending.isEmpty()) {
+          return;
+        }
+        batch = pending;
+        pending = new ArrayList<>();
+      }
+      int written = 0;
+      try {
+        for (T item : batch) {
+          writer.accept(item);
+          written++;
+        }
+      } finally {
+        if (written < batch.size()) {
+          requeue(batch.subList(written, batch.size()));
+        }
+      }
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /** Puts unwritten items back in front of those added meanwhile, they are due right away. */
+  private void requeue(List<T> unwritten) {
+    synchronized (bufferLock) {
+      List<T> items = new ArrayList<>(unwritten);
+      items.addAll(pending);
+      pending = items;
+      oldestNanos = System.nanoTime() - maxDelayNanos;
+    }
+  }
+
+  int size() {
+    synchronized (bufferLock) {
+      return pending.size();
+    }
+  }
+}
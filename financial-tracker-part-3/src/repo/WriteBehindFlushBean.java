@@ -0,0 +1,59 @@
+package repo;
+
+import java.time.Duration;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+import ch.ivyteam.ivy.process.eventstart.AbstractProcessStartEventBean;
+import ch.ivyteam.ivy.process.eventstart.IProcessStartEventBeanRuntime;
+import ch.ivyteam.ivy.process.extension.ProgramConfig;
+
+/**
+ * Writes the transactions of the write-behind buffer that no create or read writes, see {@link TransactionRepository}.
+ * <p>
+ * Checks the buffer every second and starts its process once the oldest transaction waited longer than
+ * {@code Transactions.WriteBehind.MaxDelayMillis}; when the process model version stops, e.g. on shutdown or
+ * redeployment, it starts the process for whatever is left. The process script calls
+ * {@link TransactionRepository#flush()}: the business data store needs the Ivy context of a process, which neither
+ * the polling thread nor a JVM shutdown hook has. Without write-behind mode the buffer is never filled and the
+ * process never started.
+ * </p>
+ */
+public class WriteBehindFlushBean extends AbstractProcessStartEventBean {
+
+  private static final Duration POLL_INTERVAL = Duration.ofSeconds(1);
+
+  public WriteBehindFlushBean() {
+    super("WriteBehindFlush", "Writes transactions buffered in write-behind mode");
+  }
+
+  @Override
+  public void initialize(IProcessStartEventBeanRuntime eventRuntime, ProgramConfig configuration) {
+    super.initialize(eventRuntime, configuration);
+    eventRuntime.poll().every(POLL_INTERVAL);
+  }
+
+  @Override
+  public void poll() {
+    if (TransactionRepository.hasBufferedCreates(true)) {
+      startFlush("Buffered transactions are due");
+    }
+  }
+
+  @Override
+  public void stop(IProgressMonitor monitor) throws Exception {
+    // Still active while stopping, so the process can write the rest
+    if (TransactionRepository.hasBufferedCreates(false)) {
+      startFlush("Process model version stops");
+    }
+    super.stop(monitor);
+  }
+
+  private void startFlush(String reason) {
+    try {
+      getEventBeanRuntime().processStarter().withReason(reason).start();
+    } catch (Exception e) {
+      getEventBeanRuntime().getRuntimeLogLogger().error("Could not write buffered transactions", e);
+    }
+  }
+}
@@ -0,0 +1,57 @@
+package assistant;
+
+import java.util.concurrent.TimeUnit;
+
+import assistant.TransactionAssistant.ITransactionAssistant;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.service.AiServices;
+
+/**
+ * Measures the overhead LangChain4j adds to a model call, with a proxy built per call
+ * versus one shared proxy, against a stub model that answers instantly with fixed JSON.
+ * <p>
+ * Needs no Ivy runtime; run {@link #main(String[])} from the IDE or with the test classpath,
+ * optionally passing the number of calls per round (default 20000).
+ * </p>
+ */
+public class AiServiceProxyBenchmark {
+
+  private static final String ANSWER = """
+      {"amount": 200000, "type": "EXPENSE", "category": "OTHER", "description": "Grab ride", "date": "2025-01-15"}
+      """;
+
+  private static final ChatModel STUB_MODEL = new ChatModel() {
+    @Override
+    public ChatResponse doChat(ChatRequest request) {
+      return ChatResponse.builder().aiMessage(AiMessage.from(ANSWER)).build();
+    }
+  };
+
+  public static void main(String[] args) {
+    int calls = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+    ITransactionAssistant shared = build();
+
+    // warm up both paths before measuring
+    for (int round = 0; round < 3; round++) {
+      long perCall = measure(calls, () -> build().createTransaction("Paid 200k for Grab ride"));
+      long reused = measure(calls, () -> shared.createTransaction("Paid 200k for Grab ride"));
+      System.out.printf("round %d: proxy per call %d us/call, shared proxy %d us/call%n", round + 1, perCall, reused);
+    }
+  }
+
+  private static ITransactionAssistant build() {
+    return AiServices.builder(ITransactionAssistant.class).chatModel(STUB_MODEL).build();
+  }
+
+  /** @return average microseconds per call */
+  private static long measure(int calls, Runnable call) {
+    long start = System.nanoTime();
+    for (int i = 0; i < calls; i++) {
+      call.run();
+    }
+    return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start) / calls;
+  }
+}
@@ -0,0 +1,171 @@
+package audio;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import audio.AudioIngestionJob.Status;
+import ch.ivyteam.ivy.workflow.document.IDocumentService;
+
+class AudioIngestionServiceTest {
+
+  private static final String SCOPE = "case-1";
+
+  private final InMemoryBlobStore store = new InMemoryBlobStore();
+  private final AudioIngestionService service = new AudioIngestionService(1, 1, Duration.ofHours(1), store);
+
+  @Test
+  void storesAndTranscribesOnWorker() throws Exception {
+    service.setSpeechToTextEngine(new StubSpeechToTextEngine("Paid 50k for lunch"));
+    Path recording = recording("abc");
+
+    AudioIngestionJob job = service.submit(recording, "hash-1", SCOPE, null);
+
+    awaitFinished(job);
+    assertNotNull(job.getDocumentPath());
+    assertTrue(store.storingThread.startsWith("audio-ingest-"), store.storingThread);
+    assertEquals(Status.DONE, job.getStatus());
+    assertEquals("Paid 50k for lunch", job.getTranscript());
+    assertNotNull(job.getFinishedAt());
+    assertFalse(Files.exists(recording));
+    assertEquals(1, store.references("hash-1"));
+    assertEquals(job, service.getJob(job.getId()));
+  }
+
+  @Test
+  void releaseDropsReferenceOnce() throws Exception {
+    AudioIngestionJob job = service.submit(recording("abc"), "hash-4", SCOPE, null);
+    awaitFinished(job);
+
+    assertTrue(service.release(job.getId()));
+    assertEquals(0, store.references("hash-4"));
+    assertFalse(service.release(job.getId()));
+    assertEquals(0, store.references("hash-4"));
+  }
+
+  @Test
+  void stubDescribesRecordingWithoutTranscript() throws Exception {
+    assertEquals("Recording of 5 bytes", new StubSpeechToTextEngine().transcribe(recording("12345")));
+  }
+
+  @Test
+  void failedTranscriptionReleasesRecording() throws Exception {
+    service.setSpeechToTextEngine(audio -> {
+      throw new IOException("engine down");
+    });
+    Path recording = recording("abc");
+
+    AudioIngestionJob job = service.submit(recording, "hash-2", SCOPE, null);
+
+    awaitFinished(job);
+    assertEquals(Status.FAILED, job.getStatus());
+    assertEquals("engine down", job.getErrorMessage());
+    assertEquals(0, store.references("hash-2"));
+    assertFalse(Files.exists(recording));
+  }
+
+  @Test
+  void failedStoreFailsJobWithoutTranscribing() throws Exception {
+    store.failing = true;
+    service.setSpeechToTextEngine(audio -> {
+      throw new AssertionError("nothing stored to transcribe");
+    });
+    Path recording = recording("abc");
+
+    AudioIngestionJob job = service.submit(recording, "hash-3", SCOPE, null);
+
+    awaitFinished(job);
+    assertEquals(Status.FAILED, job.getStatus());
+    assertEquals("disk full", job.getErrorMessage());
+    assertFalse(Files.exists(recording));
+    assertEquals(0, store.references("hash-3"));
+  }
+
+  @Test
+  void fullQueueRefusesWithoutStoring() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch started = new CountDownLatch(1);
+    service.setSpeechToTextEngine(audio -> {
+      started.countDown();
+      try {
+        release.await(1, TimeUnit.MINUTES);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return "";
+    });
+    try {
+      // one running, one waiting, no room for a third
+      AudioIngestionJob running = service.submit(recording("a"), "hash-a", SCOPE, null);
+      assertTrue(started.await(1, TimeUnit.MINUTES));
+      AudioIngestionJob waiting = service.submit(recording("b"), "hash-b", SCOPE, null);
+      Path refused = recording("c");
+
+      assertNull(service.submit(refused, "hash-c", SCOPE, null));
+      assertEquals(0, store.references("hash-c"));
+      // the caller keeps and deletes a refused recording
+      assertTrue(Files.exists(refused));
+      Files.delete(refused);
+
+      release.countDown();
+      awaitFinished(running);
+      awaitFinished(waiting);
+    } finally {
+      release.countDown();
+    }
+  }
+
+  private static Path recording(String content) throws IOException {
+    Path file = Files.createTempFile("audio-test-", ".webm");
+    Files.writeString(file, content);
+    return file;
+  }
+
+  private static void awaitFinished(AudioIngestionJob job) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+    while (!job.getStatus().isFinished()) {
+      assertTrue(System.nanoTime() < deadline, "job did not finish in time");
+      Thread.sleep(10);
+    }
+  }
+
+  /** Counts references instead of writing case documents, which need an Ivy request. */
+  private static final class InMemoryBlobStore extends AudioBlobStore {
+
+    private final Map<String, Integer> references = new ConcurrentHashMap<>();
+    private volatile boolean failing;
+    private volatile String storingThread;
+
+    @Override
+    String store(String scope, String hash, Path recording, IDocumentService documents) throws IOException {
+      storingThread = Thread.currentThread().getName();
+      if (failing) {
+        throw new IOException("disk full");
+      }
+      references.merge(hash, 1, Integer::sum);
+      return "audio/" + hash + ".webm";
+    }
+
+    @Override
+    void release(String scope, String hash) {
+      references.merge(hash, -1, Integer::sum);
+    }
+
+    int references(String hash) {
+      return references.getOrDefault(hash, 0);
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package repo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class DescriptionIndexTest {
+
+  private final DescriptionIndex index = new DescriptionIndex();
+
+  @BeforeEach
+  void fill() {
+    index.put("rent", "Rent October");
+    index.put("rest", "Rest stop snacks");
+    index.put("tent", "Tent for camping");
+    index.put("football", "Football tickets");
+    index.put("beef", "Beef for dinner");
+    index.put("tax", "Tax refund");
+    index.put("grab", "Grab ride to office");
+    index.put("coffee", "Coffee with Anna");
+  }
+
+  @Test
+  void matchesWordsAndPrefixes() {
+    assertEquals(Set.of("rent"), index.search("rent", true));
+    assertEquals(Set.of("grab"), index.search("grab ride", false));
+    assertEquals(Set.of("football"), index.search("foot", false));
+    assertEquals(Set.of("coffee"), index.search("cof", false));
+  }
+
+  @Test
+  void shortWordsNeverMatchWithTypos() {
+    assertEquals(Set.of(), index.search("food", true));
+    assertEquals(Set.of(), index.search("beer", true));
+    assertEquals(Set.of(), index.search("taxi", true));
+    assertEquals(Set.of(), index.search("rant", true));
+  }
+
+  @Test
+  void toleratesTyposOnlyWhenAsked() {
+    assertEquals(Set.of("coffee"), index.search("cofee", true));
+    assertEquals(Set.of(), index.search("cofee", false));
+    assertEquals(Set.of("football"), index.search("footbal", true));
+  }
+
+  @Test
+  void removedDescriptionsAreNotFound() {
+    index.remove("rent");
+    assertEquals(Set.of(), index.search("rent", false));
+  }
+}
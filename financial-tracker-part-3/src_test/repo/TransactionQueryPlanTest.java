@@ -0,0 +1,107 @@
+package repo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import ch.ivyteam.ivy.environment.Ivy;
+import ch.ivyteam.ivy.environment.IvyTest;
+import entity.Transaction;
+import entity.Transaction.Category;
+import entity.Transaction.Type;
+import entity.TransactionSearchCriteria;
+
+/**
+ * Checks that the store, the {@link TransactionIndex} and the in-memory predicate of a plan select the same transactions.
+ */
+@IvyTest
+class TransactionQueryPlanTest {
+
+  private static final LocalDate DAY = LocalDate.of(2033, 5, 10);
+
+  private final TransactionRepository repository = TransactionRepository.getInstance();
+
+  @Test
+  void emptyCriteriaHaveNoFilter() {
+    assertTrue(TransactionQueryPlan.compile(null).isEmpty());
+    TransactionSearchCriteria blank = new TransactionSearchCriteria();
+    blank.setDescriptionContains("  ");
+    blank.setType(Type.NONE);
+    blank.setCategory(Category.NONE);
+    assertTrue(TransactionQueryPlan.compile(blank).isEmpty());
+    assertFalse(TransactionQueryPlan.compile(description("grab")).isEmpty());
+  }
+
+  @Test
+  void predicateMatchesDescriptionWordsByPrefix() {
+    TransactionQueryPlan plan = TransactionQueryPlan.compile(description("Grab ri"));
+
+    assertTrue(plan.matchesDescription("grab ride to office"));
+    assertTrue(plan.matchesDescription("Ride (Grab), airport"));
+    assertFalse(plan.matchesDescription("grab"));
+    assertFalse(plan.matchesDescription("bigrab ride"));
+    assertFalse(plan.matchesDescription(null));
+  }
+
+  @Test
+  void storeIndexAndPredicateAgree() {
+    create("Grab ride to office", 50, Type.EXPENSE, Category.OTHER);
+    create("Ride with Grab", 70, Type.EXPENSE, Category.OTHER);
+    create("Grabbed lunch", 120, Type.EXPENSE, Category.FOOD);
+    create("Bigrab rides", 30, Type.EXPENSE, Category.OTHER);
+    create("Salary May", 2000, Type.INCOME, Category.SALARY);
+
+    for (TransactionSearchCriteria criteria : List.of(description("grab"), description("grab ri"),
+        description("GRAB, ride"), description("ride"), description("lunch"), amountsFrom(60), description("x y"))) {
+      criteria.setFromDate(DAY);
+      criteria.setToDate(DAY);
+      TransactionQueryPlan plan = TransactionQueryPlan.compile(criteria);
+
+      Set<String> expected = repository.stream(dayOnly(), 50).filter(plan).map(Transaction::getId)
+          .collect(Collectors.toSet());
+      Set<String> store = plan.applyTo(Ivy.repo().search(Transaction.class)).execute().getAll().stream()
+          .map(Transaction::getId).collect(Collectors.toSet());
+      Set<String> index = repository.findBySearchCriteria(criteria, false).stream()
+          .map(Transaction::getId).collect(Collectors.toSet());
+
+      assertEquals(expected, store, plan.canonicalKey());
+      assertEquals(expected, index, plan.canonicalKey());
+    }
+  }
+
+  private void create(String description, double amount, Type type, Category category) {
+    Transaction transaction = new Transaction();
+    transaction.setDescription(description);
+    transaction.setAmount(amount);
+    transaction.setDate(DAY);
+    transaction.setType(type);
+    transaction.setCategory(category);
+    repository.create(transaction);
+  }
+
+  private static TransactionSearchCriteria dayOnly() {
+    TransactionSearchCriteria criteria = new TransactionSearchCriteria();
+    criteria.setFromDate(DAY);
+    criteria.setToDate(DAY);
+    return criteria;
+  }
+
+  private static TransactionSearchCriteria description(String text) {
+    TransactionSearchCriteria criteria = new TransactionSearchCriteria();
+    criteria.setDescriptionContains(text);
+    return criteria;
+  }
+
+  private static TransactionSearchCriteria amountsFrom(double minAmount) {
+    TransactionSearchCriteria criteria = new TransactionSearchCriteria();
+    criteria.setMinAmount(minAmount);
+    return criteria;
+  }
+}
@@ -0,0 +1,78 @@
+package repo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import ch.ivyteam.ivy.environment.IvyTest;
+import entity.Transaction;
+import entity.Transaction.Category;
+import entity.Transaction.Type;
+
+/**
+ * Checks that chunked reads see every transaction exactly once, including those without a date.
+ */
+@IvyTest
+class TransactionRepositoryStreamTest {
+
+  private static final int CHUNK_SIZE = 5;
+
+  private final TransactionRepository repository = TransactionRepository.getInstance();
+
+  @Test
+  void streamReadsUndatedTransactionsBeyondFirstChunk() {
+    Set<String> created = createMixed();
+
+    List<String> seen = new ArrayList<>();
+    repository.stream(null, CHUNK_SIZE)
+        .map(Transaction::getId)
+        .filter(created::contains)
+        .forEach(seen::add);
+
+    assertEquals(created.size(), seen.size());
+    assertEquals(created, new HashSet<>(seen));
+  }
+
+  @Test
+  void forEachChunkReadsUndatedTransactionsBeyondFirstChunk() {
+    Set<String> created = createMixed();
+
+    List<String> seen = new ArrayList<>();
+    repository.forEachChunk(null, CHUNK_SIZE, chunk -> {
+      assertTrue(chunk.size() <= CHUNK_SIZE);
+      chunk.stream().map(Transaction::getId).filter(created::contains).forEach(seen::add);
+    });
+
+    assertEquals(created.size(), seen.size());
+    assertEquals(created, new HashSet<>(seen));
+  }
+
+  /** Creates a few dated transactions and more than two chunks of transactions without a date. */
+  private Set<String> createMixed() {
+    Set<String> ids = new HashSet<>();
+    for (int i = 0; i < CHUNK_SIZE + 2; i++) {
+      ids.add(repository.create(transaction("dated " + i, LocalDate.of(2032, 1, 1 + i))).getId());
+    }
+    for (int i = 0; i < 2 * CHUNK_SIZE + 3; i++) {
+      ids.add(repository.create(transaction("undated " + i, null)).getId());
+    }
+    return ids;
+  }
+
+  private static Transaction transaction(String description, LocalDate date) {
+    Transaction transaction = new Transaction();
+    transaction.setDescription(description);
+    transaction.setAmount(1);
+    transaction.setDate(date);
+    transaction.setType(Type.EXPENSE);
+    transaction.setCategory(Category.OTHER);
+    return transaction;
+  }
+}
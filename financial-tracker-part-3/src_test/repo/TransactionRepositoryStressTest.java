@@ -0,0 +1,157 @@
+package repo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import ch.ivyteam.ivy.environment.IvyTest;
+import entity.MonthlySummary;
+import entity.Transaction;
+import entity.Transaction.Category;
+import entity.Transaction.Type;
+
+/**
+ * Runs many {@link TransactionRepository#update(Transaction)} calls at once and checks that neither the
+ * transactions nor the monthly summaries lose a write.
+ */
+@IvyTest
+class TransactionRepositoryStressTest {
+
+  private static final int THREADS = 8;
+  private static final int UPDATES_PER_THREAD = 40;
+
+  private static final YearMonth MONTH = YearMonth.of(2031, 3);
+  private static final YearMonth NEXT_MONTH = MONTH.plusMonths(1);
+
+  private final TransactionRepository repository = TransactionRepository.getInstance();
+
+  @Test
+  void concurrentUpdatesKeepSummariesExact() throws Exception {
+    List<Transaction> transactions = new ArrayList<>();
+    for (int i = 0; i < THREADS; i++) {
+      transactions.add(repository.create(transaction("stress " + i, 1, MONTH.atDay(1))));
+    }
+
+    // Each thread updates its own transaction, all of them share one summary and move in and out of it
+    List<Callable<Transaction>> workers = new ArrayList<>();
+    for (Transaction transaction : transactions) {
+      workers.add(() -> {
+        Transaction current = transaction;
+        for (int update = 1; update <= UPDATES_PER_THREAD; update++) {
+          Transaction next = copyOf(current);
+          next.setAmount(current.getAmount() + 1);
+          next.setDate(update % 2 == 0 ? MONTH.atDay(1) : NEXT_MONTH.atDay(1));
+          current = repository.update(next);
+        }
+        return current;
+      });
+    }
+    List<Transaction> updated = runConcurrently(workers);
+
+    double expectedTotal = 0;
+    for (Transaction transaction : updated) {
+      assertEquals(UPDATES_PER_THREAD, transaction.getVersion());
+      assertEquals(1 + UPDATES_PER_THREAD, transaction.getAmount(), 0);
+      assertEquals(MONTH.atDay(1), transaction.getDate());
+      expectedTotal += transaction.getAmount();
+    }
+    MonthlySummary summary = summaryOf(MONTH);
+    assertEquals(THREADS, summary.getCount());
+    assertEquals(expectedTotal, summary.getTotal(), 0.001);
+    assertTrue(repository.findBySearchCriteria(null).stream()
+        .noneMatch(transaction -> YearMonth.from(transaction.getDate()).equals(NEXT_MONTH)));
+    assertTrue(MonthlySummaryRepository.getInstance().findByMonths(NEXT_MONTH, NEXT_MONTH).isEmpty());
+  }
+
+  @Test
+  void concurrentUpdatesOfSameVersionConflict() throws Exception {
+    Transaction transaction = repository.create(transaction("contended", 10, MONTH.atDay(15)));
+
+    // Everybody read version 0, only the first write may win
+    CountDownLatch start = new CountDownLatch(1);
+    List<Callable<Boolean>> workers = new ArrayList<>();
+    for (int i = 0; i < THREADS; i++) {
+      double amount = 100 + i;
+      workers.add(() -> {
+        Transaction change = copyOf(transaction);
+        change.setAmount(amount);
+        start.await();
+        try {
+          repository.update(change);
+          return true;
+        } catch (TransactionConflictException e) {
+          assertEquals(0, e.getExpectedVersion());
+          assertEquals(1, e.getActualVersion());
+          return false;
+        }
+      });
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    List<Future<Boolean>> results = new ArrayList<>();
+    try {
+      workers.forEach(worker -> results.add(executor.submit(worker)));
+      start.countDown();
+      int won = 0;
+      for (Future<Boolean> result : results) {
+        won += result.get(1, TimeUnit.MINUTES) ? 1 : 0;
+      }
+      assertEquals(1, won);
+    } finally {
+      executor.shutdownNow();
+    }
+
+    MonthlySummary summary = summaryOf(MONTH);
+    assertEquals(1, summary.getCount());
+    assertTrue(summary.getTotal() >= 100 && summary.getTotal() < 100 + THREADS);
+  }
+
+  private static <T> List<T> runConcurrently(List<Callable<T>> workers) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(workers.size());
+    try {
+      List<T> results = new ArrayList<>();
+      for (Future<T> future : executor.invokeAll(workers, 1, TimeUnit.MINUTES)) {
+        results.add(future.get());
+      }
+      return results;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static MonthlySummary summaryOf(YearMonth month) {
+    List<MonthlySummary> summaries = MonthlySummaryRepository.getInstance().findByMonths(month, month).stream()
+        .filter(summary -> summary.getType() == Type.EXPENSE && summary.getCategory() == Category.OTHER)
+        .toList();
+    assertEquals(1, summaries.size());
+    return summaries.get(0);
+  }
+
+  private static Transaction transaction(String description, double amount, LocalDate date) {
+    Transaction transaction = new Transaction();
+    transaction.setDescription(description);
+    transaction.setAmount(amount);
+    transaction.setDate(date);
+    transaction.setType(Type.EXPENSE);
+    transaction.setCategory(Category.OTHER);
+    return transaction;
+  }
+
+  private static Transaction copyOf(Transaction transaction) {
+    Transaction copy = transaction(transaction.getDescription(), transaction.getAmount(), transaction.getDate());
+    copy.setId(transaction.getId());
+    copy.setVersion(transaction.getVersion());
+    return copy;
+  }
+}
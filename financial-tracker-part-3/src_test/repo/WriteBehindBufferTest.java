@@ -0,0 +1,103 @@
+package repo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class WriteBehindBufferTest {
+
+  private final List<String> written = new CopyOnWriteArrayList<>();
+
+  @Test
+  void writesOnceBatchIsFull() {
+    WriteBehindBuffer<String> buffer = new WriteBehindBuffer<>(3, Duration.ofHours(1), written::add);
+
+    buffer.add("a");
+    buffer.addAll(List.of("b"));
+    assertEquals(List.of(), written);
+    assertEquals(2, buffer.size());
+
+    buffer.add("c");
+    assertEquals(List.of("a", "b", "c"), written);
+    assertEquals(0, buffer.size());
+  }
+
+  @Test
+  void writesOnceOldestIsDue() throws Exception {
+    WriteBehindBuffer<String> buffer = new WriteBehindBuffer<>(100, Duration.ofMillis(20), written::add);
+
+    buffer.add("a");
+    assertFalse(buffer.isDue());
+    Thread.sleep(40);
+    assertTrue(buffer.isDue());
+
+    buffer.flushIfDue();
+    assertEquals(List.of("a"), written);
+    assertFalse(buffer.isDue());
+  }
+
+  @Test
+  void failedItemsStayBufferedInOrder() {
+    boolean[] failing = {true};
+    WriteBehindBuffer<String> buffer = new WriteBehindBuffer<>(100, Duration.ofHours(1), item -> {
+      if (failing[0] && item.equals("b")) {
+        throw new IllegalStateException("store down");
+      }
+      written.add(item);
+    });
+    buffer.addAll(List.of("a", "b", "c"));
+
+    assertThrows(IllegalStateException.class, buffer::flush);
+    assertEquals(List.of("a"), written);
+    assertEquals(2, buffer.size());
+    // retried right away by the next create or poll
+    assertTrue(buffer.isDue());
+
+    failing[0] = false;
+    buffer.add("d");
+    buffer.flush();
+    assertEquals(List.of("a", "b", "c", "d"), written);
+  }
+
+  @Test
+  void flushWaitsForBatchOfOtherThread() throws Exception {
+    CountDownLatch writing = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    WriteBehindBuffer<String> buffer = new WriteBehindBuffer<>(100, Duration.ofHours(1), item -> {
+      writing.countDown();
+      try {
+        release.await(1, TimeUnit.MINUTES);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      written.add(item);
+    });
+    buffer.add("a");
+    Thread writer = new Thread(buffer::flush);
+    writer.start();
+    assertTrue(writing.await(1, TimeUnit.MINUTES));
+
+    // the batch left the buffer but is not written yet, a reader's flush must wait for it
+    Thread reader = new Thread(() -> {
+      buffer.flush();
+      assertEquals(List.of("a"), written);
+    });
+    reader.start();
+    reader.join(100);
+    assertTrue(reader.isAlive());
+
+    release.countDown();
+    reader.join(TimeUnit.MINUTES.toMillis(1));
+    writer.join(TimeUnit.MINUTES.toMillis(1));
+    assertEquals(List.of("a"), written);
+  }
+}
@@ -1,5 +1,16 @@
 let mediaRecorder;
 let audioChunks = [];
+let audioBlob;
+
+// Raw bytes per uploaded chunk, a multiple of 3 so that every chunk is Base64 encoded without padding in between
+const UPLOAD_CHUNK_SIZE = 3 * 64 * 1024;
+let uploadOffset = 0;
+let uploadIndex = 0;
+
+// Backoff while the server's ingestion queue is full, and polling interval of the job status
+const BUSY_RETRY_MILLIS = 3000;
+const STATUS_POLL_MILLIS = 1000;
+let audioJobId;
 
 function startRecording() {
     navigator.mediaDevices.getUserMedia({ audio: true })
@@ -8,33 +19,19 @@ function startRecording() {
             mediaRecorder.start();
 
             audioChunks = [];
+            audioBlob = null;
 
             mediaRecorder.addEventListener("dataavailable", event => {
                 audioChunks.push(event.data);
             });
 
             mediaRecorder.addEventListener("stop", () => {
-                const audioBlob = new Blob(audioChunks, { type: 'audio/webm' });
-                const reader = new FileReader();
-                reader.readAsDataURL(audioBlob);
-				reader.onloadend = () => {
-				    const base64AudioMessage = reader.result;
-				    document.getElementById('form:audioData').value = base64AudioMessage;
-				    console.log("Base64 length:", base64AudioMessage.length);
-
-				    // Optional: Vorspielen
-				    const audio = document.getElementById("audioPlayback");
-				    audio.src = base64AudioMessage;
-				};
-
-//                reader.onloadend = () => {
-//                    const base64AudioMessage = reader.result;
-//					document.getElementById('form:audioData').value = base64AudioMessage;
-//
-//                    // Optional: Vorspielen
-//                    const audio = document.getElementById("audioPlayback");
-//                    audio.src = base64AudioMessage;
-//                };
+                audioBlob = new Blob(audioChunks, { type: 'audio/webm' });
+                console.log("Recording size:", audioBlob.size);
+
+                // Optional: Vorspielen
+                const audio = document.getElementById("audioPlayback");
+                audio.src = URL.createObjectURL(audioBlob);
             });
         });
 }
@@ -45,12 +42,70 @@ function stopRecording() {
     }
 }
 
-function prepareSubmit() {
-  const audioData = document.getElementById('form:audioData').value;
-  if (!audioData || audioData.trim() === "") {
+function uploadRecording() {
+  if (!audioBlob || audioBlob.size === 0) {
     alert("Bitte zuerst eine Aufnahme starten und stoppen, bevor du speicherst!");
-    return false; // verhindere Submit
+    return;
+  }
+  uploadOffset = 0;
+  uploadIndex = -1;
+  showAudioStatus("Hochladen…");
+  startAudioUpload();
+}
+
+// Called after every step of the upload: sends the next chunk or finally saves the recording
+function audioUploadStep(args) {
+  if (!args || !args.ok) {
+    alert("Die Aufnahme konnte nicht hochgeladen werden.");
+    return;
+  }
+  uploadIndex++;
+  if (uploadOffset >= audioBlob.size) {
+    saveUploadedAudio();
+    return;
+  }
+  const piece = audioBlob.slice(uploadOffset, uploadOffset + UPLOAD_CHUNK_SIZE);
+  uploadOffset += UPLOAD_CHUNK_SIZE;
+  const reader = new FileReader();
+  reader.onloadend = () => {
+    const dataUrl = reader.result;
+    uploadAudioChunk([
+      { name: 'index', value: uploadIndex },
+      { name: 'chunk', value: dataUrl.substring(dataUrl.indexOf(',') + 1) }
+    ]);
+  };
+  reader.readAsDataURL(piece);
+}
+
+// Called after the recording was handed over: polls the job, or uploads it again later if the server is busy
+function audioSaved(args) {
+  if (args && args.busy) {
+    showAudioStatus("Server ausgelastet, neuer Versuch in Kürze…");
+    setTimeout(() => uploadRecording(), BUSY_RETRY_MILLIS);
+    return;
+  }
+  if (!args || !args.ok) {
+    showAudioStatus("Die Aufnahme konnte nicht gespeichert werden.");
+    return;
+  }
+  audioJobId = args.jobId;
+  showAudioStatus("In Warteschlange…");
+  pollAudioStatus([{ name: 'jobId', value: audioJobId }]);
+}
+
+function audioStatus(args) {
+  if (!args || !args.ok) {
+    showAudioStatus("Status unbekannt.");
+    return;
   }
-  return true;
+  if (!args.finished) {
+    showAudioStatus("Status: " + args.status);
+    setTimeout(() => pollAudioStatus([{ name: 'jobId', value: audioJobId }]), STATUS_POLL_MILLIS);
+    return;
+  }
+  showAudioStatus(args.status === "DONE" ? "Gespeichert: " + (args.transcript || "") : "Fehler: " + args.error);
 }
 
+function showAudioStatus(text) {
+  document.getElementById("audioStatus").textContent = text;
+}